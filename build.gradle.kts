@@ -15,6 +15,8 @@ plugins {
     id("org.jetbrains.changelog") version "2.0.0"
     // Gradle Qodana Plugin
     id("org.jetbrains.qodana") version "0.1.13"
+    // JMH Plugin
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = properties("pluginGroup")
@@ -51,6 +53,24 @@ qodana {
     showReport.set(System.getenv("QODANA_SHOW_REPORT")?.toBoolean() ?: false)
 }
 
+// Headless tour validator for CI lives in src/validator/java with only Gson on its classpath,
+// so `./gradlew validateTours` neither compiles the plugin nor resolves the IntelliJ Platform
+val validator: SourceSet by sourceSets.creating
+sourceSets.test {
+    compileClasspath += validator.output
+    runtimeClasspath += validator.output
+}
+
+// Configure JMH Plugin - benchmarks live in src/jmh/java, run with `./gradlew jmh`
+jmh {
+    jmhVersion.set("1.37")
+    // IntelliJ Platform classes are only on the test classpath
+    includeTests.set(true)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
+
 tasks {
     initializeIntelliJPlugin {
         selfUpdateCheck.set(false)
@@ -120,8 +140,25 @@ tasks {
         // https://plugins.jetbrains.com/docs/intellij/deployment.html#specifying-a-release-channel
         channels.set(listOf(properties("pluginVersion").split('-').getOrElse(1) { "default" }.split('.').first()))
     }
+
+    // Validate all .tour files without starting the IDE, for CI:
+    // ./gradlew validateTours -PtoursRoot=<dir> -Preport=<file>, fails when a step can't be resolved
+    register<JavaExec>("validateTours") {
+        group = "verification"
+        description = "Validates file:line and Class#member references of all tours against the source tree"
+        classpath = validator.runtimeClasspath
+        mainClass.set("org.vito.mycodetour.tours.cli.HeadlessTourValidator")
+        args(
+            project.findProperty("toursRoot")?.toString() ?: projectDir.path,
+            project.findProperty("report")?.toString()
+                ?: layout.buildDirectory.file("reports/tours/tour-validation.json").get().asFile.path,
+        )
+    }
 }
 
 dependencies {
+    // Local PlantUML rendering (MIT licensed build)
+    implementation("net.sourceforge.plantuml:plantuml-mit:1.2024.8")
     testImplementation("org.mockito:mockito-core:5.15.2")
+    "validatorImplementation"("com.google.code.gson:gson:2.10.1")
 }
\ No newline at end of file
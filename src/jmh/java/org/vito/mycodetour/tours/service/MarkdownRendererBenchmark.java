@@ -0,0 +1,112 @@
+package org.vito.mycodetour.tours.service;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * markdown 渲染吞吐：每次新建 flavour/parser vs 复用渲染流水线。
+ * 内容模拟常见的 tour 步骤描述，包含代码块、表格、跳转链接和图表
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MarkdownRendererBenchmark {
+
+    private static final String SECTION = """
+            ## Checkout flow
+
+            The request enters through [[OrderController#checkout]] and is validated by
+            [[OrderValidator.java:42]] before it reaches the service layer. See also
+            [[payment.tour#Capture]] for the payment part.
+
+            ```java
+            public Order checkout(Cart cart) {
+                if (cart.isEmpty()) {
+                    throw new IllegalStateException("empty cart");
+                }
+                return orderService.place(cart.items(), cart.owner());
+            }
+            ```
+
+            | Step | Component | Notes |
+            |------|-----------|-------|
+            | 1 | `OrderController` | **entry** point |
+            | 2 | `OrderValidator` | rejects *invalid* carts |
+            | 3 | `OrderService` | persists the order |
+
+            ```mermaid
+            sequenceDiagram
+                Client->>OrderController: POST /checkout
+                OrderController->>OrderService: place(items)
+                OrderService-->>Client: 201 Created
+            ```
+
+            @startuml
+            Client -> OrderController: checkout
+            OrderController -> OrderService: place
+            @enduml
+
+            ![[docs/checkout.png]] ![[docs/flow.excalidraw]]
+
+            - keep the transaction short
+            - emit `OrderPlaced` after commit
+              - consumers are idempotent
+
+            """;
+
+    /**
+     * 重复的段落数，1 约为一个普通步骤，20 为很长的说明
+     */
+    @Param({"1", "20"})
+    private int sections;
+
+    private String markdown;
+    private MarkdownPreprocessor preprocessor;
+    private MarkdownRenderer renderer;
+
+    @Setup
+    public void setup() {
+        markdown = SECTION.repeat(sections);
+        // 不访问文件系统，只衡量渲染本身
+        preprocessor = new MarkdownPreprocessor(new MarkdownPreprocessor.ResourceLocator() {
+            @Override
+            public @Nullable String resolve(@NotNull String relativePath) {
+                return "/project/" + relativePath;
+            }
+
+            @Override
+            public @Nullable String diagramKey(@NotNull String path) {
+                return "excalidraw-0123456789abcdef0123456789abcdef";
+            }
+
+            @Override
+            public boolean hasSvg(@NotNull String key) {
+                return true;
+            }
+        });
+        renderer = new MarkdownRenderer(new TourFlavourDescriptor());
+    }
+
+    @Benchmark
+    public String newPipelinePerCall() {
+        return new MarkdownRenderer(new TourFlavourDescriptor()).render(markdown, preprocessor);
+    }
+
+    @Benchmark
+    public String reusedPipeline() {
+        return renderer.render(markdown, preprocessor);
+    }
+}
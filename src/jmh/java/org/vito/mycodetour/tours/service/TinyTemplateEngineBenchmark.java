@@ -0,0 +1,81 @@
+package org.vito.mycodetour.tours.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 模板渲染对比：原先的正则替换 vs 预编译模板
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TinyTemplateEngineBenchmark {
+
+    private static final Pattern PATTERN = Pattern.compile("\\$\\{(.*?)\\}");
+
+    /**
+     * 渲染内容的大小（字符数）
+     */
+    @Param({"1000", "100000"})
+    private int contentSize;
+
+    private String template;
+    private TinyTemplateEngine.CompiledTemplate compiled;
+    private Map<String, String> values;
+
+    @Setup
+    public void setup() {
+        StringBuilder head = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            head.append("    <link rel='stylesheet' href='style").append(i).append(".css'>\n");
+        }
+        template = "<!DOCTYPE html>\n<html>\n<head>\n    <meta charset='UTF-8'>\n"
+                + head
+                + "</head>\n<body>\n<article class=\"markdown-body\">${markdownHtml}</article>\n"
+                + "<script>window.onEditorChange = `${editor}`;</script>\n</body>\n</html>\n";
+        compiled = TinyTemplateEngine.compile(template);
+
+        StringBuilder content = new StringBuilder();
+        while (content.length() < contentSize) {
+            content.append("<p>Step description with <code>$price</code> and 中文 \\ text</p>\n");
+        }
+        values = Map.of("markdownHtml", content.toString(), "editor", "window.cefQuery({request: easyMDE.value()})");
+    }
+
+    @Benchmark
+    public byte[] regex() {
+        Matcher matcher = PATTERN.matcher(template);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            String replacement = values.getOrDefault(matcher.group(1), "");
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(sb);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] compiled() {
+        return compiled.render(values);
+    }
+
+    @Benchmark
+    public byte[] compileAndRender() {
+        return TinyTemplateEngine.compile(template).render(values);
+    }
+}
@@ -4,13 +4,15 @@ import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.actionSystem.DataKey;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
 import org.vito.mycodetour.tours.domain.Step;
 import org.vito.mycodetour.tours.domain.Tour;
+import org.vito.mycodetour.tours.service.StepReanchorer;
 import org.vito.mycodetour.tours.state.StateManager;
-import org.vito.mycodetour.tours.state.TourUpdateNotifier;
 import org.vito.mycodetour.tours.ui.StepEditor;
 import org.vito.mycodetour.tours.ui.TourSelectionDialogWrapper;
 
@@ -64,11 +66,14 @@ public class EditorGutterTourStepGeneratorAction extends AnAction {
             if (!okSelected) return; // i.e. cancel the step creation
 
             final Step updatedStep = stepEditor.getUpdatedStep();
-            activeTour.get().addStep(updatedStep);
-            StateManager.getInstance().getState(project).updateTour(activeTour.get());
-
-            // Notify UI to re-render
-            project.getMessageBus().syncPublisher(TourUpdateNotifier.TOPIC).tourUpdated(activeTour.get());
+            // 仍指向当前文件时记录所在行的内容指纹，记录完成后再添加
+            final Document document = FileDocumentManager.getInstance().getDocument(virtualFile);
+            if (document != null && relativePath.equals(updatedStep.getFile())) {
+                StepReanchorer.recordAnchor(project, updatedStep, document, virtualFile,
+                        () -> TourStepGeneratorAction.addStep(project, activeTour.get(), updatedStep));
+            } else {
+                TourStepGeneratorAction.addStep(project, activeTour.get(), updatedStep);
+            }
         }
     }
 
@@ -0,0 +1,85 @@
+package org.vito.mycodetour.tours.actions;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import org.jetbrains.annotations.NotNull;
+import org.vito.mycodetour.tours.domain.Tour;
+import org.vito.mycodetour.tours.service.StepReanchorer;
+import org.vito.mycodetour.tours.state.StateManager;
+import org.vito.mycodetour.tours.state.ToursState;
+import org.vito.mycodetour.tours.state.TourUpdateNotifier;
+import org.vito.mycodetour.tours.ui.CodeTourNotifier;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 在后台按 git 差异和内容指纹检查所有文件行号步骤，确认后批量修正行号已漂移的步骤，
+ * 并为还没有指纹或提交的步骤按当前行记录
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public class ReanchorStepsAction extends AnAction {
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        final Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        final List<Tour> tours = List.copyOf(StateManager.getInstance().getState(project).getTours());
+        // git 按磁盘上的文件计算差异
+        FileDocumentManager.getInstance().saveAllDocuments();
+
+        new Task.Backgroundable(project, "Checking tour step anchors", true) {
+            private List<StepReanchorer.Fix> fixes = List.of();
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                fixes = StepReanchorer.findFixes(project, tours);
+            }
+
+            @Override
+            public void onSuccess() {
+                applyFixes(project, fixes);
+            }
+        }.queue();
+    }
+
+    private static void applyFixes(Project project, List<StepReanchorer.Fix> fixes) {
+        final long drifted = fixes.stream().filter(StepReanchorer.Fix::isDrifted).count();
+        final long unanchored = fixes.size() - drifted;
+        if (fixes.isEmpty()) {
+            CodeTourNotifier.notifyStepDescription(project, "All tour steps are at their anchored lines");
+            return;
+        }
+        final String message = String.format("%d steps have drifted from their code and can be moved, "
+                + "%d steps have no anchor or revision yet and can record them at their current line.%nUpdate the tours?",
+                drifted, unanchored);
+        if (Messages.showYesNoDialog(project, message, "Re-Anchor Tour Steps", Messages.getQuestionIcon())
+                != Messages.YES) {
+            return;
+        }
+
+        final Set<Tour> changed = new LinkedHashSet<>();
+        for (StepReanchorer.Fix fix : fixes) {
+            fix.apply();
+            if (fix.getStep().getOwner() != null) {
+                changed.add(fix.getStep().getOwner());
+            }
+        }
+        final ToursState state = StateManager.getInstance().getState(project);
+        state.saveTours(new ArrayList<>(changed));
+        for (Tour tour : changed) {
+            project.getMessageBus().syncPublisher(TourUpdateNotifier.TOPIC).tourUpdated(tour);
+        }
+    }
+}
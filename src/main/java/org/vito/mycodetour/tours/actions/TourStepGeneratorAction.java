@@ -19,6 +19,7 @@ import org.jetbrains.annotations.NotNull;
 import org.vito.mycodetour.tours.domain.Step;
 import org.vito.mycodetour.tours.domain.Tour;
 import org.vito.mycodetour.tours.service.PsiHelper;
+import org.vito.mycodetour.tours.service.StepReanchorer;
 import org.vito.mycodetour.tours.state.StateManager;
 import org.vito.mycodetour.tours.state.TourUpdateNotifier;
 import org.vito.mycodetour.tours.ui.StepEditor;
@@ -60,6 +61,8 @@ public class TourStepGeneratorAction extends AnAction {
         PsiElement parent = PsiTreeUtil.getParentOfType(element, PsiClass.class, PsiField.class, PsiMethod.class);
 
         Step step;
+        String relativePath = null;
+        VirtualFile stepFile = null;
         if (element instanceof PsiIdentifier
                 && element.getContext() != null
                 && element.getContext().equals(parent)) {
@@ -69,7 +72,9 @@ public class TourStepGeneratorAction extends AnAction {
             if (virtualFile == null) {
                 return;
             }
-            step = Step.with(getRelativePath(project, virtualFile), getLine(editor));
+            relativePath = getRelativePath(project, virtualFile);
+            stepFile = virtualFile;
+            step = Step.with(relativePath, getLine(editor));
         }
         // 如果有选中的代码段，则直接添加到描述中
         String selectedText = editor.getSelectionModel().getSelectedText();
@@ -97,15 +102,28 @@ public class TourStepGeneratorAction extends AnAction {
             if (!okSelected) return; // i.e. cancel the step creation
 
             final Step updatedStep = stepEditor.getUpdatedStep();
-            activeTour.get().addStep(updatedStep);
-            StateManager.getInstance().getState(project).updateTour(activeTour.get());
-
-            // Notify UI to re-render
-            project.getMessageBus().syncPublisher(TourUpdateNotifier.TOPIC).tourUpdated(activeTour.get());
+            // 仍指向当前文件时记录所在行的内容指纹，记录完成后再添加
+            if (relativePath != null && relativePath.equals(updatedStep.getFile())) {
+                StepReanchorer.recordAnchor(project, updatedStep, editor.getDocument(), stepFile,
+                        () -> addStep(project, activeTour.get(), updatedStep));
+            } else {
+                addStep(project, activeTour.get(), updatedStep);
+            }
         }
 
     }
 
+    /**
+     * 把步骤添加到 tour 中并保存
+     */
+    protected static void addStep(@NotNull Project project, @NotNull Tour tour, @NotNull Step step) {
+        tour.addStep(step);
+        StateManager.getInstance().getState(project).updateTour(tour);
+
+        // Notify UI to re-render
+        project.getMessageBus().syncPublisher(TourUpdateNotifier.TOPIC).tourUpdated(tour);
+    }
+
     /**
      * 选择记录文件的行数
      * 规则：如果鼠标在选中文本范围内，使用选中文本的起始行；否则使用鼠标位置所在行
@@ -16,6 +16,14 @@ public class Step {
     private String description;
     private String file;
     private Integer line;
+    /**
+     * 步骤所在行的内容指纹，行号漂移后用于重新定位，见 StepAnchor
+     */
+    private String anchor;
+    /**
+     * 记录行号时所在的 git 提交，行号是该提交中的行号，用于按差异重新映射
+     */
+    private String revision;
     private transient Tour owner;
 
     public Step() {
@@ -72,6 +80,24 @@ public class Step {
         return this;
     }
 
+    public String getAnchor() {
+        return anchor;
+    }
+
+    public Step setAnchor(String anchor) {
+        this.anchor = anchor;
+        return this;
+    }
+
+    public String getRevision() {
+        return revision;
+    }
+
+    public Step setRevision(String revision) {
+        this.revision = revision;
+        return this;
+    }
+
     public Tour getOwner() {
         return owner;
     }
@@ -1,6 +1,5 @@
 package org.vito.mycodetour.tours.domain;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.Nullable;
 
@@ -194,17 +193,6 @@ public class Tour {
         return steps.get(index);
     }
 
-    /**
-     * 获取step的索引
-     *
-     * @return step的索引
-     */
-    public ArrayListMultimap<String, Integer> getStepIndexes() {
-        ArrayListMultimap<String, Integer> multimap = ArrayListMultimap.create();
-        steps.forEach(step -> multimap.put(step.getFile(), step.getLine()));
-        return multimap;
-    }
-
     /**
      * 获取当前步骤总数
      *
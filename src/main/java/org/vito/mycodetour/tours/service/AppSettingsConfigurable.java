@@ -50,7 +50,10 @@ public class AppSettingsConfigurable implements Configurable, Configurable.WithE
         return settingsComponent.isOnboardingAssistantOn() != settings.isOnboardingAssistant()
                 || (settingsComponent.getSortOption() != settings.getSortOption())
                 || (settingsComponent.getSortDirection() != settings.getSortDirection())
-                || !settingsComponent.getSourcePath().equals(settings.getSourcePath());
+                || !settingsComponent.getSourcePath().equals(settings.getSourcePath())
+                || settingsComponent.isPlantUmlLocal() != settings.isPlantUmlLocal()
+                || settingsComponent.isGutterPushMode() != settings.isGutterPushMode()
+                || settingsComponent.isStepInlays() != settings.isStepInlays();
     }
 
     @Override
@@ -61,6 +64,14 @@ public class AppSettingsConfigurable implements Configurable, Configurable.WithE
         settings.setSortOption(Optional.ofNullable(settingsComponent.getSortOption())
                 .orElse(AppSettingsState.SortOptionE.TITLE));
         settings.setSourcePath(settingsComponent.getSourcePath());
+        settings.setPlantUmlLocal(settingsComponent.isPlantUmlLocal());
+        if (settingsComponent.isGutterPushMode() != settings.isGutterPushMode()
+                || settingsComponent.isStepInlays() != settings.isStepInlays()) {
+            settings.setGutterPushMode(settingsComponent.isGutterPushMode());
+            settings.setStepInlays(settingsComponent.isStepInlays());
+            // 行图标的来源或标题提示切换，重新装上图标和提示并重新运行分析
+            StepGutterManager.refreshAll();
+        }
     }
 
     @Override
@@ -70,6 +81,9 @@ public class AppSettingsConfigurable implements Configurable, Configurable.WithE
         settingsComponent.setSortOption(settings.getSortOption());
         settingsComponent.setSortDirection(settings.getSortDirection());
         settingsComponent.setSourcePath(settings.getSourcePath());
+        settingsComponent.setPlantUmlLocal(settings.isPlantUmlLocal());
+        settingsComponent.setGutterPushMode(settings.isGutterPushMode());
+        settingsComponent.setStepInlays(settings.isStepInlays());
         //TODO: This should be done automatically, instead of just prompting user
 
         // Notify user to reload Settings
@@ -26,6 +26,9 @@ public class AppSettingsState implements PersistentStateComponent<AppSettingsSta
    private SortOptionE sortOption = SortOptionE.TITLE;
    private SortDirectionE sortDirection = SortDirectionE.ASC;
    private String sourcePath = "";
+   private boolean plantUmlLocal = true;
+   private boolean gutterPushMode = true;
+   private boolean stepInlays = false;
 
    public static AppSettingsState getInstance() {
       return ApplicationManager.getApplication().getService(AppSettingsState.class);
@@ -91,4 +94,31 @@ public class AppSettingsState implements PersistentStateComponent<AppSettingsSta
       this.sourcePath = sourcePath;
       return this;
    }
+
+   public boolean isPlantUmlLocal() {
+      return plantUmlLocal;
+   }
+
+   public AppSettingsState setPlantUmlLocal(boolean plantUmlLocal) {
+      this.plantUmlLocal = plantUmlLocal;
+      return this;
+   }
+
+   public boolean isGutterPushMode() {
+      return gutterPushMode;
+   }
+
+   public AppSettingsState setGutterPushMode(boolean gutterPushMode) {
+      this.gutterPushMode = gutterPushMode;
+      return this;
+   }
+
+   public boolean isStepInlays() {
+      return stepInlays;
+   }
+
+   public AppSettingsState setStepInlays(boolean stepInlays) {
+      this.stepInlays = stepInlays;
+      return this;
+   }
 }
@@ -0,0 +1,121 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.ui.jcef.JBCefApp;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 预览页和编辑页的浏览器池，按工程区分。
+ * 工程打开后在后台预先创建并加载好页面，点击 step 或编辑时直接取出已预热的实例，
+ * 避免每次都冷启动浏览器、重新加载前端资源
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class BrowserPool implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(BrowserPool.class);
+    private static final int MAX_IDLE = 2;
+
+    public enum Kind {
+        VIEWER("file:///mycodetour/public/index.html"),
+        EDITOR("file:///mycodetour/public/editor/index.html");
+
+        private final String url;
+
+        Kind(String url) {
+            this.url = url;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+    }
+
+    private final Project project;
+    private final Map<Kind, Deque<PooledBrowser>> idle = new EnumMap<>(Kind.class);
+    private boolean disposed;
+
+    public BrowserPool(Project project) {
+        this.project = project;
+        for (Kind kind : Kind.values()) {
+            idle.put(kind, new ArrayDeque<>());
+        }
+    }
+
+    public static BrowserPool getInstance(@NotNull Project project) {
+        return project.getService(BrowserPool.class);
+    }
+
+    /**
+     * 每种页面预热一个实例，需在EDT中调用
+     */
+    public void prewarm() {
+        ApplicationManager.getApplication().assertIsDispatchThread();
+        if (disposed || !JBCefApp.isSupported()) {
+            return;
+        }
+        for (Kind kind : Kind.values()) {
+            if (idle.get(kind).isEmpty()) {
+                idle.get(kind).push(create(kind));
+            }
+        }
+    }
+
+    /**
+     * 取出一个浏览器，没有空闲的就现场创建，同时在后台补充一个，保证下次也是热的
+     *
+     * @param kind 页面类型
+     * @return 浏览器
+     */
+    public PooledBrowser acquire(@NotNull Kind kind) {
+        ApplicationManager.getApplication().assertIsDispatchThread();
+        PooledBrowser browser = idle.get(kind).poll();
+        if (browser == null) {
+            browser = create(kind);
+        }
+        ApplicationManager.getApplication().invokeLater(this::prewarm, project.getDisposed());
+        return browser;
+    }
+
+    /**
+     * 归还浏览器，重置后放回池中，池满则直接销毁
+     *
+     * @param browser 浏览器
+     */
+    public void release(@NotNull PooledBrowser browser) {
+        ApplicationManager.getApplication().assertIsDispatchThread();
+        if (browser.isDisposed()) {
+            return;
+        }
+        Deque<PooledBrowser> browsers = idle.get(browser.getKind());
+        if (disposed || browsers.size() >= MAX_IDLE) {
+            Disposer.dispose(browser);
+            return;
+        }
+        browser.reset();
+        browsers.push(browser);
+    }
+
+    private PooledBrowser create(Kind kind) {
+        LOG.debug("Creating pooled browser: " + kind);
+        PooledBrowser browser = new PooledBrowser(project, kind);
+        Disposer.register(this, browser);
+        return browser;
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        idle.values().forEach(Deque::clear);
+    }
+}
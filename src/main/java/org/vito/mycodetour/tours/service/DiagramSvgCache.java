@@ -0,0 +1,288 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 图表渲染结果（SVG）的磁盘缓存，应用级共享。
+ * key 由图表类型和源内容的哈希生成，内容不变则 key 不变，缓存的 SVG 可以直接展示；
+ * SVG 由前端渲染后通过回调写回
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class DiagramSvgCache {
+
+    private static final Logger LOG = Logger.getInstance(DiagramSvgCache.class);
+
+    public static final String EXCALIDRAW = "excalidraw";
+    public static final String CACHE_URL_PREFIX = "file:///mycodetour/cache/";
+    public static final String DIAGRAM_URL_PREFIX = "file:///mycodetour/diagram/";
+
+    /**
+     * 渲染方式变化时（例如主题、导出参数）修改版本号，使旧缓存失效
+     */
+    private static final String VERSION = "1";
+    private static final Pattern KEY_PATTERN = Pattern.compile("[a-z]+-[0-9a-f]{32}");
+    private static final int MAX_SVG_LENGTH = 32 * 1024 * 1024;
+    /**
+     * 缓存目录的大小上限，超出后按最近使用时间淘汰到上限的 3/4
+     */
+    private static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+
+    private final Path directory;
+    /**
+     * 文件路径 -> (修改标记, key)，文件未变化时不重复计算哈希
+     */
+    private final Map<String, FileKey> fileKeys = new ConcurrentHashMap<>();
+    /**
+     * key -> 源文件路径，用于按 key 提供源内容
+     */
+    private final Map<String, String> sources = new ConcurrentHashMap<>();
+    /**
+     * 每写入一个 SVG 加一，引用了图表的 html 缓存以此判断是否过期
+     */
+    private final AtomicLong generation = new AtomicLong();
+    /**
+     * 缓存目录中 SVG 的总大小，第一次写入时统计，-1 表示还没有统计
+     */
+    private long cacheBytes = -1;
+
+    public DiagramSvgCache() {
+        this.directory = Path.of(PathManager.getSystemPath(), "mycodetour", "diagrams");
+    }
+
+    public static DiagramSvgCache getInstance() {
+        return ApplicationManager.getApplication().getService(DiagramSvgCache.class);
+    }
+
+    /**
+     * 计算内容的缓存 key
+     *
+     * @param type    图表类型
+     * @param content 源内容
+     * @return key，形如 excalidraw-0123...
+     */
+    public static String keyOf(@NotNull String type, byte @NotNull [] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((type + ":" + VERSION + ":").getBytes(StandardCharsets.UTF_8));
+            return type + "-" + HexFormat.of().formatHex(digest.digest(content), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 获取图表文件的缓存 key，同时登记 key 对应的源文件
+     *
+     * @param type 图表类型
+     * @param file 图表文件
+     * @return key，读取失败返回 null
+     */
+    public @Nullable String keyOf(@NotNull String type, @NotNull VirtualFile file) {
+        long stamp = file.getModificationStamp();
+        FileKey fileKey = fileKeys.get(file.getPath());
+        if (fileKey != null && fileKey.stamp == stamp) {
+            return fileKey.key;
+        }
+        try {
+            String key = keyOf(type, file.contentsToByteArray());
+            fileKeys.put(file.getPath(), new FileKey(stamp, key));
+            sources.put(key, file.getPath());
+            return key;
+        } catch (IOException e) {
+            LOG.warn("Failed to read diagram: " + file.getPath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @param key 缓存 key
+     * @return key 对应的源文件
+     */
+    public @Nullable VirtualFile getSource(@NotNull String key) {
+        String path = sources.get(key);
+        return path != null ? VirtualFileManager.getInstance().findFileByNioPath(Path.of(path)) : null;
+    }
+
+    public boolean contains(@NotNull String key) {
+        return isValidKey(key) && Files.isRegularFile(svgPath(key));
+    }
+
+    /**
+     * @param key 缓存 key
+     * @return 缓存的 SVG，不存在返回 null
+     */
+    public byte @Nullable [] read(@NotNull String key) {
+        if (!isValidKey(key)) {
+            return null;
+        }
+        try {
+            Path path = svgPath(key);
+            byte[] svg = Files.readAllBytes(path);
+            // 修改时间作为最近使用时间，淘汰时保留常用的图表
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return svg;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param key 缓存 key
+     * @return 缓存的 SVG 文本，不存在返回 null
+     */
+    public @Nullable String getSvg(@NotNull String key) {
+        byte[] svg = read(key);
+        return svg != null ? new String(svg, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * 写入渲染好的 SVG，先写临时文件再替换，避免读到写了一半的内容。
+     * key 由内容生成，已有缓存时不再写入；缓存目录超出大小上限时淘汰最久没有使用的图表
+     *
+     * @param key 缓存 key
+     * @param svg SVG 内容
+     */
+    public void store(@NotNull String key, @NotNull String svg) {
+        if (!isValidKey(key) || svg.length() > MAX_SVG_LENGTH
+                || !(svg.startsWith("<svg") || svg.startsWith("<?xml"))) {
+            LOG.warn("Ignore invalid diagram svg: " + key);
+            return;
+        }
+        if (contains(key)) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            Files.writeString(temp, svg, StandardCharsets.UTF_8);
+            long size = Files.size(temp);
+            Files.move(temp, svgPath(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            generation.incrementAndGet();
+            trim(size);
+        } catch (IOException e) {
+            LOG.warn("Failed to cache diagram svg: " + key, e);
+        }
+    }
+
+    /**
+     * 记录新写入的大小，超出上限时按修改时间从旧到新删除
+     *
+     * @param added 新写入的字节数
+     */
+    private synchronized void trim(long added) throws IOException {
+        if (cacheBytes < 0) {
+            cacheBytes = 0;
+            for (Path path : listSvgs()) {
+                cacheBytes += sizeOf(path);
+            }
+        } else {
+            cacheBytes += added;
+        }
+        if (cacheBytes <= MAX_CACHE_BYTES) {
+            return;
+        }
+        List<Path> svgs = listSvgs();
+        Map<Path, Long> lastUsed = new HashMap<>();
+        for (Path path : svgs) {
+            lastUsed.put(path, lastModified(path));
+        }
+        svgs.sort(Comparator.comparingLong(lastUsed::get));
+        for (Path path : svgs) {
+            if (cacheBytes <= MAX_CACHE_BYTES * 3 / 4) {
+                break;
+            }
+            long size = sizeOf(path);
+            if (Files.deleteIfExists(path)) {
+                cacheBytes -= size;
+            }
+        }
+    }
+
+    private List<Path> listSvgs() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".svg"))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 处理前端回调，内容为 "key\nsvg"
+     *
+     * @param payload 回调内容
+     */
+    public void store(@NotNull String payload) {
+        int index = payload.indexOf('\n');
+        if (index > 0) {
+            store(payload.substring(0, index), payload.substring(index + 1));
+        }
+    }
+
+    /**
+     * @return 缓存的版本，写入新的 SVG 后变化
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public static boolean isValidKey(@NotNull String key) {
+        return KEY_PATTERN.matcher(key).matches();
+    }
+
+    private Path svgPath(String key) {
+        return directory.resolve(key + ".svg");
+    }
+
+    private static final class FileKey {
+        private final long stamp;
+        private final String key;
+
+        private FileKey(long stamp, String key) {
+            this.stamp = stamp;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.CapturingProcessHandler;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 读取本地 git 仓库：当前提交直接从 .git 目录中读取，不启动进程；
+ * 差异通过本地的 git 命令计算，不访问网络
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class GitSupport {
+
+    private static final Logger LOG = Logger.getInstance(GitSupport.class);
+    private static final int DIFF_TIMEOUT_MS = 10_000;
+
+    private GitSupport() {
+    }
+
+    /**
+     * @param file 仓库中的文件或目录
+     * @return 所在仓库的根目录，不在 git 仓库中时返回 null
+     */
+    public static @Nullable Path findRoot(@NotNull Path file) {
+        for (Path dir = file; dir != null; dir = dir.getParent()) {
+            if (Files.exists(dir.resolve(".git"))) {
+                return dir;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取仓库当前的提交
+     *
+     * @param root 仓库根目录
+     * @return 提交的哈希，读取失败时返回 null
+     */
+    public static @Nullable String headRevision(@NotNull Path root) {
+        try {
+            final Path gitDir = gitDir(root);
+            if (gitDir == null) {
+                return null;
+            }
+            final String head = Files.readString(gitDir.resolve("HEAD"), StandardCharsets.UTF_8).trim();
+            if (!head.startsWith("ref: ")) {
+                // 分离头指针
+                return head;
+            }
+            return resolveRef(commonDir(gitDir), head.substring("ref: ".length()).trim());
+        } catch (IOException e) {
+            LOG.debug("Failed to read git HEAD in " + root, e);
+            return null;
+        }
+    }
+
+    /**
+     * 计算文件从指定提交到工作区的差异
+     *
+     * @param root         仓库根目录
+     * @param revision     提交
+     * @param relativePath 文件相对于仓库根目录的路径
+     * @return 行号映射，git 不可用或提交不存在时返回 null
+     */
+    public static @Nullable LineRemapper diff(@NotNull Path root, @NotNull String revision, @NotNull String relativePath) {
+        final GeneralCommandLine command = new GeneralCommandLine(
+                "git", "diff", "--no-color", "--no-ext-diff", "-U0", revision, "--", relativePath)
+                .withWorkDirectory(root.toFile())
+                .withCharset(StandardCharsets.UTF_8);
+        try {
+            final ProcessOutput output = new CapturingProcessHandler(command).runProcess(DIFF_TIMEOUT_MS);
+            if (output.isTimeout() || output.getExitCode() != 0) {
+                LOG.debug("git diff failed: " + output.getStderr());
+                return null;
+            }
+            return LineRemapper.parse(output.getStdout());
+        } catch (Exception e) {
+            LOG.debug("Failed to run git diff in " + root, e);
+            return null;
+        }
+    }
+
+    /**
+     * 工作区中相对 HEAD 有改动的文件，包括未跟踪的文件
+     *
+     * @param root         仓库根目录
+     * @param relativePath 只查看这个文件，为 null 时查看整个仓库
+     * @return 相对于仓库根目录的路径，git 不可用时返回 null
+     */
+    public static @Nullable Set<String> changedFiles(@NotNull Path root, @Nullable String relativePath) {
+        final GeneralCommandLine command = new GeneralCommandLine(
+                "git", "status", "--porcelain=v1", "-z", "--untracked-files=all")
+                .withWorkDirectory(root.toFile())
+                .withCharset(StandardCharsets.UTF_8);
+        if (relativePath != null) {
+            command.addParameters("--", relativePath);
+        }
+        try {
+            final ProcessOutput output = new CapturingProcessHandler(command).runProcess(DIFF_TIMEOUT_MS);
+            if (output.isTimeout() || output.getExitCode() != 0) {
+                LOG.debug("git status failed: " + output.getStderr());
+                return null;
+            }
+            // 每项形如 "XY path\0"，重命名和复制之后还跟着原来的路径
+            final Set<String> changed = new HashSet<>();
+            final String[] entries = output.getStdout().split("\0");
+            for (int i = 0; i < entries.length; i++) {
+                final String entry = entries[i];
+                if (entry.length() < 4) {
+                    continue;
+                }
+                changed.add(entry.substring(3));
+                if ((entry.charAt(0) == 'R' || entry.charAt(0) == 'C') && i + 1 < entries.length) {
+                    changed.add(entries[++i]);
+                }
+            }
+            return changed;
+        } catch (Exception e) {
+            LOG.debug("Failed to run git status in " + root, e);
+            return null;
+        }
+    }
+
+    /**
+     * .git 可以是目录，也可以是指向实际目录的文件（工作树、子模块）
+     */
+    private static @Nullable Path gitDir(Path root) throws IOException {
+        final Path dotGit = root.resolve(".git");
+        if (Files.isDirectory(dotGit)) {
+            return dotGit;
+        }
+        if (Files.isRegularFile(dotGit)) {
+            final String content = Files.readString(dotGit, StandardCharsets.UTF_8).trim();
+            if (content.startsWith("gitdir: ")) {
+                return root.resolve(content.substring("gitdir: ".length()).trim()).normalize();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 工作树的分支引用保存在主仓库中
+     */
+    private static Path commonDir(Path gitDir) throws IOException {
+        final Path commonDir = gitDir.resolve("commondir");
+        if (Files.isRegularFile(commonDir)) {
+            return gitDir.resolve(Files.readString(commonDir, StandardCharsets.UTF_8).trim()).normalize();
+        }
+        return gitDir;
+    }
+
+    private static @Nullable String resolveRef(Path gitDir, String ref) throws IOException {
+        final Path loose = gitDir.resolve(ref);
+        if (Files.isRegularFile(loose)) {
+            return Files.readString(loose, StandardCharsets.UTF_8).trim();
+        }
+        final Path packed = gitDir.resolve("packed-refs");
+        if (!Files.isRegularFile(packed)) {
+            return null;
+        }
+        final List<String> lines = Files.readAllLines(packed, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            // 形如 <sha> refs/heads/main
+            if (line.endsWith(" " + ref) && !line.startsWith("#")) {
+                return line.substring(0, line.indexOf(' '));
+            }
+        }
+        return null;
+    }
+}
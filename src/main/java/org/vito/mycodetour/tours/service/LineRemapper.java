@@ -0,0 +1,100 @@
+package org.vito.mycodetour.tours.service;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 按一个文件的差异把旧版本中的行号映射到新版本，差异为 {@code git diff -U0} 的输出。
+ * 同一文件的差异只解析一次，文件中所有步骤共用
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class LineRemapper {
+
+    public static final LineRemapper IDENTITY = new LineRemapper(new int[0][]);
+
+    private static final Pattern HUNK_HEADER = Pattern.compile("^@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@");
+
+    /**
+     * 每个改动块：旧起始行、旧行数、新起始行、新行数，按旧起始行排序
+     */
+    private final int[][] hunks;
+
+    private LineRemapper(int[][] hunks) {
+        this.hunks = hunks;
+    }
+
+    /**
+     * 解析单个文件的差异
+     *
+     * @param diff {@code git diff -U0} 的输出，只包含一个文件
+     * @return 行号映射，没有改动时为 {@link #IDENTITY}
+     */
+    public static @NotNull LineRemapper parse(@NotNull String diff) {
+        final List<int[]> hunks = new ArrayList<>();
+        for (String line : diff.split("\n")) {
+            final Matcher matcher = HUNK_HEADER.matcher(line);
+            if (matcher.find()) {
+                hunks.add(new int[]{
+                        Integer.parseInt(matcher.group(1)),
+                        matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : 1,
+                        Integer.parseInt(matcher.group(3)),
+                        matcher.group(4) != null ? Integer.parseInt(matcher.group(4)) : 1});
+            }
+        }
+        return hunks.isEmpty() ? IDENTITY : new LineRemapper(hunks.toArray(new int[0][]));
+    }
+
+    /**
+     * @param line 旧版本中的行号，从 1 开始
+     * @return 新版本中的行号，该行被修改或删除时返回 -1
+     */
+    public int map(int line) {
+        int offset = 0;
+        for (int[] hunk : hunks) {
+            final int oldStart = hunk[0];
+            final int oldCount = hunk[1];
+            final int newCount = hunk[3];
+            if (oldCount == 0) {
+                // 纯插入，插在旧版本第 oldStart 行之后
+                if (oldStart >= line) {
+                    break;
+                }
+            } else {
+                if (line < oldStart) {
+                    break;
+                }
+                if (line < oldStart + oldCount) {
+                    return -1;
+                }
+            }
+            offset += newCount - oldCount;
+        }
+        return line + offset;
+    }
+
+    /**
+     * 与 {@link #map(int)} 相同，但该行被修改或删除时返回对应改动块在新版本中的位置，
+     * 可以作为按内容查找的起点
+     *
+     * @param line 旧版本中的行号，从 1 开始
+     * @return 新版本中的行号，从 1 开始
+     */
+    public int approximate(int line) {
+        final int mapped = map(line);
+        if (mapped > 0) {
+            return mapped;
+        }
+        for (int[] hunk : hunks) {
+            if (hunk[1] > 0 && line >= hunk[0] && line < hunk[0] + hunk[1]) {
+                return Math.max(1, hunk[2] + Math.min(line - hunk[0], Math.max(hunk[3] - 1, 0)));
+            }
+        }
+        return line;
+    }
+}
@@ -0,0 +1,274 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * markdown 预处理，一次线性扫描完成以下语法转换：
+ * <ul>
+ *     <li>![[xx.excalidraw]] 嵌入 Excalidraw，按地址加载</li>
+ *     <li>![[xx.png]] 嵌入图片</li>
+ *     <li>[[xx]] 代码跳转链接，[[xx.tour#step]] tour 跳转链接</li>
+ *     <li>@startuml ... @enduml 转为 startuml 代码块</li>
+ * </ul>
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public class MarkdownPreprocessor {
+
+    private static final String START_UML = "@startuml";
+    private static final String END_UML = "@enduml";
+    private static final String EXCALIDRAW = ".excalidraw";
+    private static final String TOUR_STEP = ".tour#";
+
+    /**
+     * 资源查找，与文件系统解耦
+     */
+    public interface ResourceLocator {
+
+        /**
+         * @param relativePath 相对路径
+         * @return 资源的绝对路径，不存在时返回 null
+         */
+        @Nullable String resolve(@NotNull String relativePath);
+
+        /**
+         * @param path 图表文件的绝对路径
+         * @return 图表的缓存 key，读取失败时返回 null
+         */
+        @Nullable String diagramKey(@NotNull String path);
+
+        /**
+         * @param key 图表的缓存 key
+         * @return 是否已有渲染好的 SVG
+         */
+        boolean hasSvg(@NotNull String key);
+    }
+
+    private final ResourceLocator locator;
+
+    public MarkdownPreprocessor(@NotNull ResourceLocator locator) {
+        this.locator = locator;
+    }
+
+    /**
+     * 资源相对于 baseDir 查找
+     *
+     * @param baseDir 资源查找的起始目录
+     * @return 预处理器
+     */
+    public static MarkdownPreprocessor forBaseDir(String baseDir) {
+        return new MarkdownPreprocessor(new ResourceLocator() {
+            @Override
+            public @Nullable String resolve(@NotNull String relativePath) {
+                VirtualFile file = findResource(baseDir, relativePath);
+                return file != null ? file.getPath() : null;
+            }
+
+            @Override
+            public @Nullable String diagramKey(@NotNull String path) {
+                VirtualFile file = VirtualFileManager.getInstance().findFileByNioPath(new File(path).toPath());
+                return file != null ? DiagramSvgCache.getInstance().keyOf(DiagramSvgCache.EXCALIDRAW, file) : null;
+            }
+
+            @Override
+            public boolean hasSvg(@NotNull String key) {
+                return DiagramSvgCache.getInstance().contains(key);
+            }
+        });
+    }
+
+    /**
+     * @param baseDir      资源查找的起始目录
+     * @param relativePath 相对路径
+     * @return 资源文件，不存在时返回 null
+     */
+    public static @Nullable VirtualFile findResource(String baseDir, @NotNull String relativePath) {
+        return VirtualFileManager.getInstance().findFileByNioPath(new File(baseDir + "/" + relativePath).toPath());
+    }
+
+    /**
+     * 找出以 ![[xx]] 嵌入的图片和图表，与 {@link #process(String)} 的识别规则一致
+     *
+     * @param markdown markdown内容
+     * @return 嵌入的资源的相对路径
+     */
+    public static List<String> embeds(@NotNull String markdown) {
+        final List<String> embeds = new ArrayList<>();
+        int open = markdown.indexOf("![[");
+        while (open >= 0) {
+            final int from = open + 3;
+            final int close = markdown.indexOf(']', from);
+            if (close < 0) {
+                break;
+            }
+            if (close > from && close + 1 < markdown.length() && markdown.charAt(close + 1) == ']') {
+                embeds.add(markdown.substring(from, close));
+                open = markdown.indexOf("![[", close + 2);
+            } else {
+                open = markdown.indexOf("![[", from);
+            }
+        }
+        return embeds;
+    }
+
+    /**
+     * 预处理 markdown
+     *
+     * @param markdown markdown内容
+     * @return 处理后的markdown内容
+     */
+    public String process(@NotNull String markdown) {
+        if (!markdown.contains("[[") && !markdown.contains(START_UML)) {
+            return markdown;
+        }
+        final int length = markdown.length();
+        final StringBuilder out = new StringBuilder(length + 64);
+        // 下一个 ']' 的位置，扫描位置只增不减，缓存后整体保持线性
+        int nextClose = -1;
+        boolean hasEndUml = true;
+        int i = 0;
+        while (i < length) {
+            char c = markdown.charAt(i);
+            if (c == '[' || c == '!') {
+                int open = c == '!' ? i + 1 : i;
+                if (markdown.startsWith("[[", open)) {
+                    int from = open + 2;
+                    if (nextClose != length && nextClose < from) {
+                        nextClose = markdown.indexOf(']', from);
+                        if (nextClose < 0) {
+                            nextClose = length;
+                        }
+                    }
+                    if (nextClose > from && nextClose + 1 < length && markdown.charAt(nextClose + 1) == ']') {
+                        String target = markdown.substring(from, nextClose);
+                        if (c == '!') {
+                            appendEmbed(out, target);
+                        } else {
+                            appendWikiLink(out, target);
+                        }
+                        i = nextClose + 2;
+                        continue;
+                    }
+                }
+            } else if (c == '@' && hasEndUml && markdown.startsWith(START_UML, i)) {
+                int end = markdown.indexOf(END_UML, i + START_UML.length());
+                if (end < 0) {
+                    hasEndUml = false;
+                } else {
+                    int bodyStart = skipWhitespace(markdown, i + START_UML.length(), end);
+                    out.append("```startuml\n").append(markdown, bodyStart, end).append("```");
+                    i = end + END_UML.length();
+                    continue;
+                }
+            }
+            out.append(c);
+            i++;
+        }
+        return out.toString();
+    }
+
+    private void appendEmbed(StringBuilder out, String target) {
+        String path = locator.resolve(target);
+        if (target.endsWith(EXCALIDRAW)) {
+            appendExcalidraw(out, target, path);
+            return;
+        }
+        String alt = escapeAttr(target);
+        if (path == null) {
+            out.append("<img src='file:///").append(alt).append("' alt='").append(alt).append("'>");
+        } else {
+            out.append("<img src='file://").append(escapeAttr(path)).append("' alt='").append(alt)
+                    .append("' data-origin-src='").append(alt).append("'/>");
+        }
+    }
+
+    /**
+     * Excalidraw 不再内联 JSON：已有缓存时直接引用 SVG，否则给出源内容地址由前端渲染
+     */
+    private void appendExcalidraw(StringBuilder out, String target, @Nullable String path) {
+        String key = path != null ? locator.diagramKey(path) : null;
+        if (key == null) {
+            out.append("<div class='excalidraw' data-missing='").append(escapeAttr(target)).append("'></div>");
+            return;
+        }
+        out.append("<div class='excalidraw' data-key='").append(key)
+                .append("' data-source-file='").append(escapeAttr(path)).append("'");
+        if (locator.hasSvg(key)) {
+            out.append("><img src='").append(DiagramSvgCache.CACHE_URL_PREFIX).append(key)
+                    .append(".svg' alt='").append(escapeAttr(target)).append("'/></div>");
+        } else {
+            out.append(" data-src='").append(DiagramSvgCache.DIAGRAM_URL_PREFIX).append(key)
+                    .append(".js'></div>");
+        }
+    }
+
+    private static void appendWikiLink(StringBuilder out, String target) {
+        if (!target.contains(".tour")) {
+            out.append("<a href=\"navigate://").append(target).append("\">").append(target).append("</a>");
+            return;
+        }
+        // xx.tour#step 形式，tour 名称中不能包含 '#' 和 ':'
+        int index = target.indexOf(TOUR_STEP);
+        if (index < 0 || index + TOUR_STEP.length() >= target.length()) {
+            out.append(target);
+            return;
+        }
+        int nameStart = index;
+        while (nameStart > 0 && target.charAt(nameStart - 1) != '#' && target.charAt(nameStart - 1) != ':') {
+            nameStart--;
+        }
+        if (nameStart == index) {
+            out.append(target);
+            return;
+        }
+        String link = target.substring(nameStart);
+        out.append(target, 0, nameStart)
+                .append("<a href=\"tour://").append(link).append("\">").append(link).append("</a>");
+    }
+
+    private static int skipWhitespace(String str, int from, int to) {
+        int i = from;
+        while (i < to && isWhitespace(str.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    static String escapeAttr(String str) {
+        StringBuilder sb = null;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            String replacement = switch (c) {
+                case '&' -> "&amp;";
+                case '\'' -> "&#39;";
+                case '"' -> "&quot;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                default -> null;
+            };
+            if (replacement != null && sb == null) {
+                sb = new StringBuilder(str.length() + 16).append(str, 0, i);
+            }
+            if (sb != null) {
+                if (replacement != null) {
+                    sb.append(replacement);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb != null ? sb.toString() : str;
+    }
+}
@@ -0,0 +1,98 @@
+package org.vito.mycodetour.tours.service;
+
+import org.intellij.markdown.ast.ASTNode;
+import org.intellij.markdown.html.HtmlGenerator;
+import org.intellij.markdown.parser.MarkdownParser;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * markdown 渲染流水线：预处理 -> 解析 -> 生成 html。
+ * flavour 和 parser 不保存解析状态，可以在多线程间共享复用，
+ * 每次渲染只创建与文档绑定的 HtmlGenerator
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class MarkdownRenderer {
+
+    /**
+     * 默认实现，mermaid 图表从 {@link DiagramSvgCache} 中查找已渲染的 SVG
+     */
+    private static final MarkdownRenderer DEFAULT = new MarkdownRenderer(
+            new TourFlavourDescriptor(key -> DiagramSvgCache.getInstance().getSvg(key)));
+
+    /**
+     * Custom TagRenderer for md to html, as for some strange reason there is no default implementation now
+     * in the related Jetbrains library
+     */
+    private static final HtmlGenerator.TagRenderer TAG_RENDERER = new HtmlGenerator.TagRenderer() {
+        @NotNull
+        @Override
+        public CharSequence printHtml(@NotNull CharSequence charSequence) {
+            return charSequence;
+        }
+
+        @NotNull
+        @Override
+        public CharSequence openTag(@NotNull ASTNode astNode, @NotNull CharSequence tagName,
+                                    @NotNull CharSequence[] attributes, boolean autoClose) {
+            StringBuilder builder = new StringBuilder();
+            builder.append("<").append(tagName);
+            for (CharSequence attribute : attributes) {
+                if (attribute == null || attribute.isEmpty()) {
+                    continue;
+                }
+                builder.append(" ").append(attribute);
+            }
+            if (autoClose) {
+                builder.append(" />");
+            } else {
+                builder.append(">");
+            }
+
+            return builder.toString();
+        }
+
+        @NotNull
+        @Override
+        public CharSequence closeTag(@NotNull CharSequence charSequence) {
+            return "</" + charSequence + ">";
+        }
+    };
+
+    private final TourFlavourDescriptor flavour;
+    private final MarkdownParser parser;
+
+    public MarkdownRenderer(@NotNull TourFlavourDescriptor flavour) {
+        this.flavour = flavour;
+        this.parser = new MarkdownParser(flavour);
+    }
+
+    public static MarkdownRenderer getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 渲染 markdown，资源相对于 baseDir 查找
+     *
+     * @param markdown markdown内容
+     * @param baseDir  资源查找的起始目录，通常为 tour 所在项目或模块的根目录
+     * @return html内容
+     */
+    public String render(@NotNull String markdown, @NotNull String baseDir) {
+        return render(markdown, MarkdownPreprocessor.forBaseDir(baseDir));
+    }
+
+    /**
+     * 渲染 markdown
+     *
+     * @param markdown     markdown内容
+     * @param preprocessor 处理 ![[]]、[[]] 及 @startuml 语法的预处理器
+     * @return html内容
+     */
+    public String render(@NotNull String markdown, @NotNull MarkdownPreprocessor preprocessor) {
+        String processedMarkdown = preprocessor.process(markdown);
+        ASTNode parsedTree = parser.buildMarkdownTreeFromString(processedMarkdown);
+        return new HtmlGenerator(processedMarkdown, parsedTree, flavour, false).generateHtml(TAG_RENDERER);
+    }
+}
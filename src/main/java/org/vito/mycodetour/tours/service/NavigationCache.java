@@ -0,0 +1,169 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.search.FilenameIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiModificationTracker;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 步骤导航目标的缓存，按工程区分。
+ * 文件引用缓存解析到的 VirtualFile，文件结构或源码根目录变化后失效；
+ * 类、方法引用缓存 SmartPsiElementPointer，Java 结构变化后失效。
+ * 在 tour 中前后切换步骤时无需再遍历源码根目录或查索引
+ * <p>
+ * 依赖索引，需要在智能模式下的 ReadAction 中调用，解析过程响应读操作的取消
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class NavigationCache {
+
+    private final Project project;
+    private final ModificationTracker fileTracker;
+    private final ModificationTracker psiTracker;
+    private final Map<String, List<VirtualFile>> files = new ConcurrentHashMap<>();
+    private final Map<String, SmartPsiElementPointer<PsiElement>> elements = new ConcurrentHashMap<>();
+    private volatile long fileStamp = -1;
+    private volatile long psiStamp = -1;
+
+    public NavigationCache(Project project) {
+        this.project = project;
+        ProjectRootManager rootManager = ProjectRootManager.getInstance(project);
+        this.fileTracker = () -> VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS.getModificationCount()
+                + rootManager.getModificationCount();
+        this.psiTracker = PsiModificationTracker.getInstance(project).forLanguage(JavaLanguage.INSTANCE);
+    }
+
+    public static NavigationCache getInstance(@NotNull Project project) {
+        return project.getService(NavigationCache.class);
+    }
+
+    /**
+     * 查找引用的文件：先相对于各源码根目录查找，找不到时按文件名查索引
+     *
+     * @param relativePath 文件的相对路径或文件名
+     * @return 匹配的文件，可能有多个，没有时为空
+     */
+    public @NotNull List<VirtualFile> findFiles(@NotNull String relativePath) {
+        long stamp = fileTracker.getModificationCount();
+        if (stamp != fileStamp) {
+            files.clear();
+            fileStamp = stamp;
+        }
+        List<VirtualFile> cached = files.get(relativePath);
+        if (cached != null && cached.stream().allMatch(VirtualFile::isValid)) {
+            return cached;
+        }
+        List<VirtualFile> resolved = resolveFiles(relativePath);
+        if (!resolved.isEmpty()) {
+            files.put(relativePath, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * 查找类
+     *
+     * @param className 类的全限定名
+     * @return 类，找不到返回 null
+     */
+    public @Nullable PsiClass findClass(@NotNull String className) {
+        PsiElement element = findElement(className, null);
+        return element instanceof PsiClass ? (PsiClass) element : null;
+    }
+
+    /**
+     * 查找类中的方法或字段，成员不存在时返回类本身
+     *
+     * @param className  类的全限定名
+     * @param memberName 方法名、带参数签名的方法或字段名
+     * @return 成员或类，类找不到时返回 null
+     */
+    public @Nullable PsiElement findMember(@NotNull String className, @NotNull String memberName) {
+        return findElement(className, memberName);
+    }
+
+    private @Nullable PsiElement findElement(@NotNull String className, @Nullable String memberName) {
+        long stamp = psiTracker.getModificationCount();
+        if (stamp != psiStamp) {
+            elements.clear();
+            psiStamp = stamp;
+        }
+        String key = memberName == null ? className : className + "#" + memberName;
+        SmartPsiElementPointer<PsiElement> pointer = elements.get(key);
+        PsiElement element = pointer != null ? pointer.getElement() : null;
+        if (element != null && element.isValid()) {
+            return element;
+        }
+
+        element = resolveElement(className, memberName);
+        if (element != null) {
+            elements.put(key, SmartPointerManager.getInstance(project).createSmartPsiElementPointer(element));
+        } else {
+            elements.remove(key);
+        }
+        return element;
+    }
+
+    private List<VirtualFile> resolveFiles(String relativePath) {
+        // 遍历所有源码根目录
+        for (VirtualFile sourceRoot : ProjectRootManager.getInstance(project).getContentSourceRoots()) {
+            VirtualFile file = sourceRoot.findFileByRelativePath(relativePath);
+            if (file != null) {
+                return List.of(file);
+            }
+        }
+        // 回退到文件名搜索
+        String fileName = Paths.get(relativePath).getFileName().toString();
+        return List.copyOf(FilenameIndex.getVirtualFilesByName(fileName, GlobalSearchScope.projectScope(project)));
+    }
+
+    private @Nullable PsiElement resolveElement(String className, @Nullable String memberName) {
+        PsiClass psiClass = JavaPsiFacade.getInstance(project).findClass(className, GlobalSearchScope.allScope(project));
+        if (psiClass == null || memberName == null) {
+            return psiClass;
+        }
+
+        // 携带签名的方法引用
+        if (memberName.contains("(")) {
+            PsiMethod method = PsiHelper.findMethodBySignature(psiClass,
+                    URLDecoder.decode(memberName, StandardCharsets.UTF_8));
+            if (method != null) {
+                return method;
+            }
+        } else {
+            // 先找方法，再从字段中找一下
+            PsiMethod[] methods = psiClass.findMethodsByName(memberName, false);
+            if (methods.length > 0) {
+                return methods[0];
+            }
+            PsiField field = psiClass.findFieldByName(memberName, false);
+            if (field != null) {
+                return field;
+            }
+        }
+        // 没有这个成员就返回类
+        return psiClass;
+    }
+}
@@ -0,0 +1,67 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 导航请求调度，按工程区分，只执行最后一次请求。
+ * 目标在可取消的非阻塞读操作中解析，新请求到来时未完成的旧请求直接作废，
+ * 快速连续切换步骤时不会依次重放中间每一步的跳转。
+ * 解析依赖索引，索引期间的请求会等到索引完成后再执行，不会阻塞 UI 和写操作
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class NavigationScheduler implements Disposable {
+
+    private final Project project;
+    private final AtomicLong generation = new AtomicLong();
+
+    public NavigationScheduler(Project project) {
+        this.project = project;
+    }
+
+    public static NavigationScheduler getInstance(@NotNull Project project) {
+        return project.getService(NavigationScheduler.class);
+    }
+
+    /**
+     * 提交导航请求，之前未完成的请求会被取消
+     *
+     * @param resolver 在读操作中解析目标，返回需要在 EDT 中执行的跳转或提示，无需处理时返回 null。
+     *                 读操作可能因写操作被中断后重新执行，解析过程不能有副作用
+     */
+    public void schedule(@NotNull Callable<Runnable> resolver) {
+        final long current = generation.incrementAndGet();
+        ReadAction.nonBlocking(resolver)
+                .inSmartMode(project)
+                .expireWhen(() -> generation.get() != current)
+                .coalesceBy(this)
+                .expireWith(this)
+                .finishOnUiThread(ModalityState.defaultModalityState(), navigation -> {
+                    if (navigation != null && generation.get() == current) {
+                        navigation.run();
+                    }
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+     * 取消所有未完成的请求
+     */
+    public void cancelAll() {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void dispose() {
+        cancelAll();
+    }
+}
@@ -0,0 +1,120 @@
+package org.vito.mycodetour.tours.service;
+
+import net.sourceforge.plantuml.FileFormat;
+import net.sourceforge.plantuml.FileFormatOption;
+import net.sourceforge.plantuml.SourceStringReader;
+import net.sourceforge.plantuml.security.SecurityProfile;
+import net.sourceforge.plantuml.security.SecurityUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 使用内置的 PlantUML 在本地渲染 SVG，不依赖网络和 Graphviz。
+ * 图表来自工程中的 tour，按 SANDBOX 安全级别渲染，不能包含本地文件或访问网络
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class PlantUmlRenderer {
+
+    public static final String TYPE = "plantuml";
+    public static final String URL_PREFIX = "file:///mycodetour/plantuml/";
+
+    private static final int MAX_SOURCES = 256;
+    /**
+     * key -> 图表源码，只保留最近渲染过的页面中的图表
+     */
+    private static final Map<String, String> SOURCES = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_SOURCES;
+                }
+            });
+    private static final Object LOCK = new Object();
+    private static final String SECURITY_PROFILE = "PLANTUML_SECURITY_PROFILE";
+    /**
+     * 包含其他文件或地址的指令，安全级别没能设为 SANDBOX 时拒绝渲染
+     */
+    private static final Pattern INCLUDE = Pattern.compile("^\\s*!(include|import)", Pattern.MULTILINE);
+    private static Boolean sandboxed;
+
+    private PlantUmlRenderer() {
+    }
+
+    /**
+     * 登记图表源码，返回用于缓存和请求地址的 key
+     *
+     * @param source 图表源码，不含 @startuml/@enduml
+     * @return key
+     */
+    public static String register(@NotNull String source) {
+        String key = DiagramSvgCache.keyOf(TYPE, source.getBytes(StandardCharsets.UTF_8));
+        SOURCES.put(key, source);
+        return key;
+    }
+
+    public static @Nullable String getSource(@NotNull String key) {
+        return SOURCES.get(key);
+    }
+
+    /**
+     * 渲染 SVG，语法错误时 PlantUML 会输出错误信息图片
+     *
+     * @param source 图表源码，不含 @startuml/@enduml
+     * @return SVG 内容
+     */
+    public static String renderSvg(@NotNull String source) throws IOException {
+        StringBuilder uml = new StringBuilder(source.length() + 64).append("@startuml\n");
+        // 未指定布局引擎时使用内置的 smetana，避免依赖本机安装的 Graphviz
+        if (!source.contains("!pragma layout")) {
+            uml.append("!pragma layout smetana\n");
+        }
+        uml.append(source);
+        if (!source.endsWith("\n")) {
+            uml.append('\n');
+        }
+        uml.append("@enduml\n");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // PlantUML 内部有全局状态，串行渲染
+        synchronized (LOCK) {
+            if (sandboxed == null) {
+                sandboxed = initSandbox();
+            }
+            if (!sandboxed && INCLUDE.matcher(source).find()) {
+                throw new IOException("PlantUML include directives are not allowed");
+            }
+            new SourceStringReader(uml.toString()).outputImage(out, new FileFormatOption(FileFormat.SVG));
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * PlantUML 在第一次使用时按系统属性确定安全级别，之后不再变化。
+     * 只在初始化时临时设置，不影响其他插件中的 PlantUML
+     *
+     * @return 安全级别是否为 SANDBOX
+     */
+    private static boolean initSandbox() {
+        final String previous = System.getProperty(SECURITY_PROFILE);
+        System.setProperty(SECURITY_PROFILE, SecurityProfile.SANDBOX.name());
+        try {
+            return SecurityUtils.getSecurityProfile() == SecurityProfile.SANDBOX;
+        } finally {
+            if (previous != null) {
+                System.setProperty(SECURITY_PROFILE, previous);
+            } else {
+                System.clearProperty(SECURITY_PROFILE);
+            }
+        }
+    }
+}
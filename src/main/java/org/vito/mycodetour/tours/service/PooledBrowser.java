@@ -0,0 +1,276 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.ui.jcef.JBCefBrowser;
+import com.intellij.ui.jcef.JBCefBrowserBase;
+import com.intellij.ui.jcef.JBCefJSQuery;
+import org.cef.browser.CefBrowser;
+import org.cef.browser.CefFrame;
+import org.cef.handler.CefLoadHandlerAdapter;
+import org.cef.handler.CefRequestHandlerAdapter;
+import org.cef.handler.CefResourceHandler;
+import org.cef.handler.CefResourceRequestHandler;
+import org.cef.handler.CefResourceRequestHandlerAdapter;
+import org.cef.misc.BoolRef;
+import org.cef.network.CefRequest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.JComponent;
+import java.awt.Container;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 池化的浏览器实例，创建时即加载好对应页面，请求处理器只注册一次，
+ * 使用方通过替换回调和页面参数来复用
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class PooledBrowser implements Disposable {
+
+    /**
+     * 分段传输markdown时每段的字符数
+     */
+    private static final int MARKDOWN_CHUNK_SIZE = 64 * 1024;
+
+    private final BrowserPool.Kind kind;
+    private final JBCefBrowser browser;
+    private final JBCefJSQuery query;
+    private final JBCefJSQuery diagramQuery;
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final List<String> pendingScripts = new ArrayList<>();
+    private final AtomicInteger markdownTransfer = new AtomicInteger();
+    private volatile Function<String, JBCefJSQuery.Response> queryHandler;
+    private volatile Predicate<String> linkHandler;
+    private volatile boolean loaded;
+    private volatile boolean cacheDiagrams = true;
+    private volatile boolean disposed;
+
+    PooledBrowser(@NotNull Project project, @NotNull BrowserPool.Kind kind) {
+        this.kind = kind;
+        this.browser = JBCefBrowser.createBuilder().setUrl(kind.getUrl()).build();
+
+        // JSQuery 需要在浏览器真正创建之前生成
+        this.query = JBCefJSQuery.create((JBCefBrowserBase) browser);
+        query.addHandler(request -> {
+            Function<String, JBCefJSQuery.Response> handler = queryHandler;
+            return handler != null ? handler.apply(request) : null;
+        });
+        if (kind == BrowserPool.Kind.EDITOR) {
+            values.put("editor", query.inject("easyMDE.value()"));
+            diagramQuery = null;
+        } else {
+            values.put("markdownHtml", "");
+            // 前端渲染好的图表回写到缓存
+            diagramQuery = JBCefJSQuery.create((JBCefBrowserBase) browser);
+            diagramQuery.addHandler(payload -> {
+                if (cacheDiagrams) {
+                    ApplicationManager.getApplication().executeOnPooledThread(
+                            () -> DiagramSvgCache.getInstance().store(payload));
+                }
+                return null;
+            });
+            values.put("diagram", diagramQuery.inject("payload"));
+        }
+
+        browser.getJBCefClient().addRequestHandler(new CefRequestHandlerAdapter() {
+            @Override
+            public boolean onBeforeBrowse(CefBrowser cefBrowser, CefFrame frame, CefRequest request,
+                                          boolean userGesture, boolean isRedirect) {
+                Predicate<String> handler = linkHandler;
+                return handler != null && handler.test(request.getURL());
+            }
+
+            @Override
+            public boolean onOpenURLFromTab(CefBrowser cefBrowser, CefFrame frame, String targetUrl, boolean userGesture) {
+                // 禁止其他页面的跳转
+                return true;
+            }
+
+            @Override
+            public CefResourceRequestHandler getResourceRequestHandler(CefBrowser cefBrowser, CefFrame frame,
+                                                                       CefRequest request, boolean isNavigation,
+                                                                       boolean isDownload, String requestInitiator,
+                                                                       BoolRef disableDefaultHandling) {
+                return new CefResourceRequestHandlerAdapter() {
+                    @Override
+                    public CefResourceHandler getResourceHandler(CefBrowser cefBrowser, CefFrame frame, CefRequest request) {
+                        if (request.getURL().startsWith("file:///")) {
+                            return new ResourceHandler(project, values);
+                        }
+                        // 放行非必要处理请求
+                        return null;
+                    }
+                };
+            }
+        }, browser.getCefBrowser());
+
+        browser.getJBCefClient().addLoadHandler(new CefLoadHandlerAdapter() {
+            @Override
+            public void onLoadStart(CefBrowser cefBrowser, CefFrame frame, CefRequest.TransitionType transitionType) {
+                if (frame.isMain()) {
+                    synchronized (pendingScripts) {
+                        loaded = false;
+                    }
+                }
+            }
+
+            @Override
+            public void onLoadEnd(CefBrowser cefBrowser, CefFrame frame, int httpStatusCode) {
+                if (frame.isMain()) {
+                    flushPendingScripts();
+                }
+            }
+        }, browser.getCefBrowser());
+
+        browser.createImmediately();
+    }
+
+    public BrowserPool.Kind getKind() {
+        return kind;
+    }
+
+    public JComponent getComponent() {
+        return browser.getComponent();
+    }
+
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    /**
+     * 设置页面内链接跳转的处理，返回 true 表示已处理并取消浏览器自身的跳转
+     */
+    public void setLinkHandler(@Nullable Predicate<String> linkHandler) {
+        this.linkHandler = linkHandler;
+    }
+
+    /**
+     * 设置是否把前端渲染好的图表写入缓存。编辑时的预览中图表随输入不断变化，不写入缓存
+     */
+    public void setCacheDiagrams(boolean cacheDiagrams) {
+        this.cacheDiagrams = cacheDiagrams;
+    }
+
+    /**
+     * 设置页面回调的处理，编辑页中对应内容变更
+     */
+    public void setQueryHandler(@Nullable Function<String, JBCefJSQuery.Response> queryHandler) {
+        this.queryHandler = queryHandler;
+    }
+
+    /**
+     * 在预览页中展示渲染好的html，页面已加载时直接替换内容，不再重新加载
+     *
+     * @param html 渲染好的html
+     */
+    public void showMarkdownHtml(@NotNull String html) {
+        values.put("markdownHtml", html);
+        executeWhenLoaded("window.renderMarkdown('" + Utils.escapeJavaScript(html) + "');");
+    }
+
+    /**
+     * 在预览页中增量更新内容，只替换有变化的节点，已渲染的代码高亮和图表保持不变
+     *
+     * @param html 渲染好的html
+     */
+    public void patchMarkdownHtml(@NotNull String html) {
+        values.put("markdownHtml", html);
+        executeWhenLoaded("window.patchMarkdown('" + Utils.escapeJavaScript(html) + "');");
+    }
+
+    /**
+     * 设置编辑页中的markdown内容。内容不再写入页面模板，而是分段通过脚本传给页面，
+     * 页面收齐后一次性设置到编辑器中
+     *
+     * @param markdown markdown内容
+     */
+    public void setMarkdown(@NotNull String markdown) {
+        final int id = markdownTransfer.incrementAndGet();
+        final List<String> scripts = new ArrayList<>(markdown.length() / MARKDOWN_CHUNK_SIZE + 2);
+        scripts.add("window.markdownChannel.begin(" + id + ");");
+        int start = 0;
+        while (start < markdown.length()) {
+            int end = Math.min(start + MARKDOWN_CHUNK_SIZE, markdown.length());
+            // 不拆开代理对，否则单独的半个字符无法编码传输
+            if (end < markdown.length() && Character.isHighSurrogate(markdown.charAt(end - 1))) {
+                end--;
+            }
+            scripts.add("window.markdownChannel.append(" + id + ",'"
+                    + Utils.escapeJavaScript(markdown, start, end) + "');");
+            start = end;
+        }
+        scripts.add("window.markdownChannel.commit(" + id + ");");
+        scripts.forEach(this::executeWhenLoaded);
+    }
+
+    /**
+     * 页面加载完成后执行脚本，已加载则立即执行
+     *
+     * @param script js脚本
+     */
+    public void executeWhenLoaded(@NotNull String script) {
+        synchronized (pendingScripts) {
+            if (!loaded) {
+                pendingScripts.add(script);
+                return;
+            }
+        }
+        execute(script);
+    }
+
+    /**
+     * 归还前重置，清掉使用方的回调和内容
+     */
+    void reset() {
+        linkHandler = null;
+        queryHandler = null;
+        cacheDiagrams = true;
+        Container parent = browser.getComponent().getParent();
+        if (parent != null) {
+            parent.remove(browser.getComponent());
+        }
+        if (kind == BrowserPool.Kind.EDITOR) {
+            setMarkdown("");
+        } else {
+            showMarkdownHtml("");
+        }
+    }
+
+    private void flushPendingScripts() {
+        List<String> scripts;
+        synchronized (pendingScripts) {
+            loaded = true;
+            scripts = new ArrayList<>(pendingScripts);
+            pendingScripts.clear();
+        }
+        scripts.forEach(this::execute);
+    }
+
+    private void execute(String script) {
+        CefBrowser cefBrowser = browser.getCefBrowser();
+        cefBrowser.executeJavaScript(script, cefBrowser.getURL(), 0);
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        linkHandler = null;
+        queryHandler = null;
+        Disposer.dispose(query);
+        if (diagramQuery != null) {
+            Disposer.dispose(diagramQuery);
+        }
+        Disposer.dispose(browser);
+    }
+}
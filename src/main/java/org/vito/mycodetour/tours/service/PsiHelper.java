@@ -1,16 +1,22 @@
 package org.vito.mycodetour.tours.service;
 
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiField;
 import com.intellij.psi.PsiIdentifier;
 import com.intellij.psi.PsiMethod;
 import com.intellij.psi.PsiParameter;
-import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
-import java.util.stream.Collectors;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * @author vito
@@ -19,6 +25,9 @@ import java.util.stream.Collectors;
  */
 public class PsiHelper {
 
+    private static final Key<CachedValue<Map<String, PsiMethod>>> METHOD_SIGNATURES =
+            Key.create("mycodetour.method.signatures");
+
     /**
      * 构建方法引用
      *
@@ -27,10 +36,44 @@ public class PsiHelper {
      */
     public static String methodWithParameter(PsiMethod method) {
         PsiParameter[] params = method.getParameterList().getParameters();
-        String paramTypes = Arrays.stream(params)
-                .map(p -> p.getType().getCanonicalText())
-                .collect(Collectors.joining(", "));
-        return String.format("%s(%s)", method.getName(), paramTypes);
+        StringBuilder sb = new StringBuilder(method.getName()).append('(');
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(params[i].getType().getCanonicalText());
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * 带缓存的方法引用，Java 结构变化后重新计算
+     *
+     * @param method 方法
+     * @return 方法引用，形如 methodName(paramType1, paramType2)
+     */
+    public static String methodSignature(PsiMethod method) {
+        return CachedValuesManager.getCachedValue(method, () -> CachedValueProvider.Result.create(
+                methodWithParameter(method), javaStructureTracker(method)));
+    }
+
+    /**
+     * 按方法引用查找类中的方法，类中的签名表有缓存，重载很多时也只需一次查找
+     *
+     * @param psiClass  类
+     * @param signature 方法引用，形如 methodName(paramType1, paramType2)
+     * @return 方法，找不到返回 null
+     */
+    @Nullable
+    public static PsiMethod findMethodBySignature(PsiClass psiClass, String signature) {
+        return CachedValuesManager.getCachedValue(psiClass, METHOD_SIGNATURES, () -> {
+            PsiMethod[] methods = psiClass.getMethods();
+            Map<String, PsiMethod> signatures = new HashMap<>(methods.length * 2);
+            for (PsiMethod method : methods) {
+                signatures.putIfAbsent(methodSignature(method), method);
+            }
+            return CachedValueProvider.Result.create(signatures, javaStructureTracker(psiClass));
+        }).get(signature);
     }
 
     /**
@@ -43,11 +86,11 @@ public class PsiHelper {
         PsiClass containingClass = method.getContainingClass();
         String className = containingClass != null ?
                 containingClass.getQualifiedName() : "<UnknownClass>";
-        PsiParameter[] params = method.getParameterList().getParameters();
-        String paramTypes = Arrays.stream(params)
-                .map(p -> p.getType().getCanonicalText())
-                .collect(Collectors.joining(", "));
-        return String.format("%s#%s(%s)", className, method.getName(), paramTypes);
+        return className + "#" + methodSignature(method);
+    }
+
+    private static ModificationTracker javaStructureTracker(PsiElement element) {
+        return PsiModificationTracker.getInstance(element.getProject()).forLanguage(JavaLanguage.INSTANCE);
     }
 
     /**
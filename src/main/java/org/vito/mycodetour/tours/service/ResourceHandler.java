@@ -1,5 +1,6 @@
 package org.vito.mycodetour.tours.service;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -11,11 +12,13 @@ import org.cef.misc.StringRef;
 import org.cef.network.CefRequest;
 import org.cef.network.CefResponse;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Collections;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -27,9 +30,16 @@ import java.util.Map;
  */
 public class ResourceHandler implements CefResourceHandler {
     private static final Logger LOG = Logger.getInstance(ResourceHandler.class);
+    /**
+     * 超过该大小的本地文件使用内存映射读取，避免整体拷贝到堆中
+     */
+    private static final long MAP_THRESHOLD = 1024 * 1024;
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
 
-    private InputStream inputStream;
+    private volatile ByteBuffer data;
     private String mimeType;
+    private String etag;
+    private boolean notModified;
     private Project project;
     private Map<String, String> values = Collections.emptyMap();
 
@@ -53,87 +63,205 @@ public class ResourceHandler implements CefResourceHandler {
         // 解析URL路径（例如 "myapp:///html/index.html"）
         if (url.startsWith("file:///mycodetour/") && url.endsWith("index.html")) {
             String resourcePath = url.replace("file:///mycodetour", "");
-            String markdownHtml = TinyTemplateEngine.render(resourcePath, values);
-            inputStream = new ByteArrayInputStream(markdownHtml.getBytes(StandardCharsets.UTF_8));
+            data = ByteBuffer.wrap(TinyTemplateEngine.renderBytes(resourcePath, values));
+        } else if (url.startsWith(DiagramSvgCache.CACHE_URL_PREFIX)) {
+            // 已渲染的图表，内容由 key 决定，不会变化
+            String key = diagramKey(url, DiagramSvgCache.CACHE_URL_PREFIX, ".svg");
+            byte[] svg = key != null ? DiagramSvgCache.getInstance().read(key) : null;
+            if (svg == null) {
+                return false;
+            }
+            etag = "\"" + key + "\"";
+            notModified = etag.equals(request.getHeaderByName("If-None-Match"));
+            data = notModified ? ByteBuffer.allocate(0) : ByteBuffer.wrap(svg);
+        } else if (url.startsWith(PlantUmlRenderer.URL_PREFIX)) {
+            return processPlantUml(url, request, callback);
+        } else if (url.startsWith(DiagramSvgCache.DIAGRAM_URL_PREFIX)) {
+            // 图表源内容以脚本形式提供，file 协议下页面无法 fetch
+            String key = diagramKey(url, DiagramSvgCache.DIAGRAM_URL_PREFIX, ".js");
+            VirtualFile source = key != null ? DiagramSvgCache.getInstance().getSource(key) : null;
+            if (source == null) {
+                return false;
+            }
+            try {
+                byte[] content = source.contentsToByteArray();
+                // 源文件在渲染后被修改时，不再回写缓存
+                boolean cacheable = key.equals(DiagramSvgCache.keyOf(DiagramSvgCache.EXCALIDRAW, content));
+                String script = "window.onDiagramSource('" + key + "', '"
+                        + Utils.escapeJavaScript(new String(content, StandardCharsets.UTF_8)) + "', " + cacheable + ");";
+                data = ByteBuffer.wrap(script.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                LOG.warn("Failed to read diagram: " + source.getPath(), e);
+                return false;
+            }
         } else if (url.startsWith("file:///mycodetour/")) {
             String resourcePath = url.replace("file:///mycodetour", "");
-            inputStream = getClass().getResourceAsStream(resourcePath);
-            if (inputStream == null) {
+            StaticAssetCache cache = StaticAssetCache.getInstance();
+            StaticAssetCache.Asset asset = cache.get(resourcePath);
+            if (asset == null) {
                 return false;
             }
+            etag = asset.getETag();
+            if (etag.equals(request.getHeaderByName("If-None-Match"))) {
+                notModified = true;
+                data = ByteBuffer.allocate(0);
+                cache.recordNotModified();
+            } else {
+                data = asset.getData();
+                cache.recordServed(data.remaining());
+            }
         } else {
             String resourcePath = url;
             if (!resourcePath.startsWith("file:///")) {
                 resourcePath = "file://" + project.getBasePath() + "/" + resourcePath.replace("file://", "");
             }
             VirtualFile resourceFile = VirtualFileManager.getInstance().findFileByUrl(resourcePath);
-            if (resourceFile == null) {
+            if (resourceFile == null || resourceFile.isDirectory()) {
                 return false;
             }
             try {
-                inputStream = resourceFile.getInputStream();
+                data = readFile(resourceFile);
             } catch (IOException e) {
-                LOG.error(e);
+                LOG.warn("Failed to read file: " + resourcePath, e);
                 return false;
             }
         }
 
-        // 根据文件后缀设置MIME类型
-        if (url.endsWith(".html")) {
-            mimeType = "text/html";
-        } else if (url.endsWith(".css")) {
-            mimeType = "text/css";
-        } else if (url.endsWith(".js")) {
-            mimeType = "application/javascript";
-        } else if (url.endsWith(".png")) {
-            mimeType = "image/png";
-        } else if (url.endsWith(".jpg") || url.endsWith(".jpeg")) {
-            mimeType = "image/jpeg";
-        } else if (url.endsWith(".gif")) {
-            mimeType = "image/gif";
-        } else if (url.endsWith(".svg")) {
-            mimeType = "image/svg+xml";
-        } else if (url.endsWith(".excalidraw")) {
-            mimeType = "application/json";
-        } else {
-            mimeType = "application/octet-stream";
-        }
-
+        mimeType = getMimeType(url);
         callback.Continue();
         return true;
     }
 
+    /**
+     * PlantUML 本地渲染：命中磁盘缓存直接返回，否则在后台线程渲染后再继续响应
+     */
+    private boolean processPlantUml(String url, CefRequest request, CefCallback callback) {
+        String key = diagramKey(url, PlantUmlRenderer.URL_PREFIX, ".svg");
+        // 关闭本地渲染时返回失败，由前端回退到远程服务
+        if (key == null || !AppSettingsState.getInstance().isPlantUmlLocal()) {
+            return false;
+        }
+        mimeType = "image/svg+xml";
+        etag = "\"" + key + "\"";
+        DiagramSvgCache cache = DiagramSvgCache.getInstance();
+        if (etag.equals(request.getHeaderByName("If-None-Match"))) {
+            notModified = true;
+            data = ByteBuffer.allocate(0);
+            callback.Continue();
+            return true;
+        }
+        byte[] cached = cache.read(key);
+        if (cached != null) {
+            data = ByteBuffer.wrap(cached);
+            callback.Continue();
+            return true;
+        }
+        String source = PlantUmlRenderer.getSource(key);
+        if (source == null) {
+            return false;
+        }
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            try {
+                String svg = PlantUmlRenderer.renderSvg(source);
+                cache.store(key, svg);
+                data = ByteBuffer.wrap(svg.getBytes(StandardCharsets.UTF_8));
+                callback.Continue();
+            } catch (Exception e) {
+                LOG.warn("Failed to render PlantUML: " + key, e);
+                callback.cancel();
+            }
+        });
+        return true;
+    }
+
+    private static String diagramKey(String url, String prefix, String suffix) {
+        if (!url.endsWith(suffix)) {
+            return null;
+        }
+        String key = url.substring(prefix.length(), url.length() - suffix.length());
+        return DiagramSvgCache.isValidKey(key) ? key : null;
+    }
+
+    /**
+     * 读取文件内容，大文件在本地文件系统中时使用内存映射
+     */
+    private static ByteBuffer readFile(VirtualFile file) throws IOException {
+        if (file.isInLocalFileSystem() && file.getLength() > MAP_THRESHOLD) {
+            try (FileChannel channel = FileChannel.open(file.toNioPath(), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        return ByteBuffer.wrap(file.contentsToByteArray());
+    }
+
+    /**
+     * 根据文件后缀获取MIME类型
+     */
+    static String getMimeType(String url) {
+        String path = url;
+        int end = indexOfAny(path, '?', '#');
+        if (end >= 0) {
+            path = path.substring(0, end);
+        }
+        path = path.toLowerCase(Locale.ROOT);
+        if (path.endsWith(".html")) {
+            return "text/html";
+        } else if (path.endsWith(".css")) {
+            return "text/css";
+        } else if (path.endsWith(".js")) {
+            return "application/javascript";
+        } else if (path.endsWith(".png")) {
+            return "image/png";
+        } else if (path.endsWith(".jpg") || path.endsWith(".jpeg")) {
+            return "image/jpeg";
+        } else if (path.endsWith(".gif")) {
+            return "image/gif";
+        } else if (path.endsWith(".svg")) {
+            return "image/svg+xml";
+        } else if (path.endsWith(".excalidraw")) {
+            return "application/json";
+        }
+        return "application/octet-stream";
+    }
+
+    private static int indexOfAny(String str, char a, char b) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == a || c == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     @Override
     public void getResponseHeaders(CefResponse response, IntRef responseLength, StringRef redirectUrl) {
         response.setMimeType(mimeType);
-        response.setStatus(200);
-        responseLength.set(-1); // -1表示流式传输
+        response.setStatus(notModified ? 304 : 200);
+        if (etag != null) {
+            // 内置资源不会变化，允许浏览器缓存
+            response.setHeaderByName("Cache-Control", IMMUTABLE, true);
+            response.setHeaderByName("ETag", etag, true);
+        }
+        // 内容已全部就绪，返回准确长度
+        responseLength.set(data.remaining());
     }
 
     @Override
     public boolean readResponse(byte[] dataOut, int bytesToRead, IntRef bytesRead, CefCallback callback) {
-        try {
-            int available = inputStream.available();
-            if (available == 0) {
-                bytesRead.set(0);
-                return false;
-            }
-            bytesRead.set(inputStream.read(dataOut, 0, Math.min(bytesToRead, available)));
-            return bytesRead.get() > 0;
-        } catch (IOException e) {
-            e.printStackTrace();
+        ByteBuffer buffer = data;
+        if (buffer == null || !buffer.hasRemaining()) {
+            bytesRead.set(0);
             return false;
         }
+        int length = Math.min(bytesToRead, buffer.remaining());
+        buffer.get(dataOut, 0, length);
+        bytesRead.set(length);
+        return true;
     }
 
     @Override
     public void cancel() {
-        try {
-            if (inputStream != null) {
-                inputStream.close();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        data = null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,148 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 插件内置前端资源（webpack 打包产物）的内存缓存，应用级共享。
+ * 资源随插件版本固定不变，首次读取后放在堆外内存中，之后所有浏览器直接复用
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class StaticAssetCache {
+
+    private static final Logger LOG = Logger.getInstance(StaticAssetCache.class);
+
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong servedBytes = new AtomicLong();
+
+    public static StaticAssetCache getInstance() {
+        return ApplicationManager.getApplication().getService(StaticAssetCache.class);
+    }
+
+    /**
+     * 获取资源，html 模板需要渲染，不走缓存
+     *
+     * @param path classpath 路径，例如 /public/index.js
+     * @return 资源，不存在时返回 null
+     */
+    public @Nullable Asset get(@NotNull String path) {
+        if (path.endsWith(".html")) {
+            return null;
+        }
+        Asset asset = assets.get(path);
+        if (asset != null) {
+            hits.incrementAndGet();
+            return asset;
+        }
+        misses.incrementAndGet();
+        asset = load(path);
+        if (asset == null) {
+            return null;
+        }
+        Asset previous = assets.putIfAbsent(path, asset);
+        return previous != null ? previous : asset;
+    }
+
+    void recordServed(int bytes) {
+        servedBytes.addAndGet(bytes);
+    }
+
+    void recordNotModified() {
+        notModified.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    public long getServedBytes() {
+        return servedBytes.get();
+    }
+
+    public long getCachedBytes() {
+        return assets.values().stream().mapToLong(asset -> asset.data.capacity()).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "StaticAssetCache{assets=" + assets.size()
+                + ", cachedBytes=" + getCachedBytes()
+                + ", hits=" + getHits()
+                + ", misses=" + getMisses()
+                + ", notModified=" + getNotModified()
+                + ", servedBytes=" + getServedBytes() + "}";
+    }
+
+    private static @Nullable Asset load(String path) {
+        try (InputStream inputStream = StaticAssetCache.class.getResourceAsStream(path)) {
+            if (inputStream == null) {
+                return null;
+            }
+            byte[] bytes = inputStream.readAllBytes();
+            ByteBuffer data = ByteBuffer.allocateDirect(bytes.length);
+            data.put(bytes).flip();
+            return new Asset(data.asReadOnlyBuffer(), etag(bytes));
+        } catch (IOException e) {
+            LOG.warn("Failed to read resource: " + path, e);
+            return null;
+        }
+    }
+
+    private static String etag(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 缓存的资源内容及其 ETag
+     */
+    public static final class Asset {
+        private final ByteBuffer data;
+        private final String etag;
+
+        private Asset(ByteBuffer data, String etag) {
+            this.data = data;
+            this.etag = etag;
+        }
+
+        /**
+         * @return 独立读位置的只读视图，可并发读取
+         */
+        public ByteBuffer getData() {
+            return data.duplicate();
+        }
+
+        public String getETag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.vito.mycodetour.tours.service;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 文件行号步骤的内容指纹：记录步骤所在行及其上下两行去掉空白后的哈希，
+ * 代码上方增删内容导致行号漂移后，在原行号附近查找内容最匹配的行。
+ * 整个文件只扫描一遍计算每行哈希，查找范围有上限，耗时与文件大小成线性关系
+ * <p>
+ * 指纹形如 {@code 1a2b3c4d-00000000-5e6f7a8b}，依次为上一行、当前行、下一行的哈希，
+ * 空行或超出文件范围的行哈希为 0
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class StepAnchor {
+
+    /**
+     * 在原行号上下各查找的最大行数
+     */
+    public static final int SEARCH_WINDOW = 2000;
+
+    private StepAnchor() {
+    }
+
+    /**
+     * 计算指定行的指纹
+     *
+     * @param text 文件内容
+     * @param line 从 1 开始的行号
+     * @return 指纹，行号超出文件范围时返回 null
+     */
+    public static @Nullable String fingerprint(@NotNull CharSequence text, int line) {
+        return fingerprint(lineHashes(text), line);
+    }
+
+    /**
+     * 与 {@link #fingerprint(CharSequence, int)} 相同，使用已经计算好的每行哈希，同一文件中的多个步骤共用
+     *
+     * @param hashes {@link #lineHashes(CharSequence)} 的结果
+     * @param line   从 1 开始的行号
+     * @return 指纹，行号超出文件范围时返回 null
+     */
+    public static @Nullable String fingerprint(int[] hashes, int line) {
+        final int index = line - 1;
+        if (index < 0 || index >= hashes.length) {
+            return null;
+        }
+        return String.format("%08x-%08x-%08x", hashAt(hashes, index - 1), hashes[index], hashAt(hashes, index + 1));
+    }
+
+    /**
+     * 查找与指纹最匹配的行：原行号完全匹配时直接返回；否则在窗口内由近及远查找，
+     * 当前行匹配且上下行匹配得越多越好，同样匹配时取离原行号最近的。
+     * 只有当前行匹配时，要求窗口内只有这一行匹配，避免匹配到 "}" 这类常见行
+     *
+     * @param text        文件内容
+     * @param line        记录的行号，从 1 开始
+     * @param fingerprint 记录的指纹
+     * @return 匹配的行号，从 1 开始，找不到或指纹无效时返回 -1
+     */
+    public static int locate(@NotNull CharSequence text, int line, @Nullable String fingerprint) {
+        return locate(lineHashes(text), line, fingerprint);
+    }
+
+    /**
+     * 与 {@link #locate(CharSequence, int, String)} 相同，使用已经计算好的每行哈希
+     */
+    public static int locate(int[] hashes, int line, @Nullable String fingerprint) {
+        final int[] expected = parse(fingerprint);
+        if (expected == null || expected[1] == 0 || hashes.length == 0) {
+            return -1;
+        }
+        final int origin = Math.max(0, Math.min(line - 1, hashes.length - 1));
+        if (score(hashes, origin, expected) == 3) {
+            return origin + 1;
+        }
+
+        int best = -1;
+        int bestScore = 0;
+        int singleMatches = 0;
+        for (int distance = 0; distance <= SEARCH_WINDOW; distance++) {
+            final int above = origin - distance;
+            final int below = origin + distance;
+            if (above < 0 && below >= hashes.length) {
+                break;
+            }
+            // 距离为 0 时上下是同一行，只看一次
+            for (int side = distance == 0 ? 1 : 0; side < 2; side++) {
+                final int candidate = side == 0 ? above : below;
+                if (candidate < 0 || candidate >= hashes.length) {
+                    continue;
+                }
+                final int score = score(hashes, candidate, expected);
+                if (score == 1) {
+                    singleMatches++;
+                }
+                if (score > bestScore) {
+                    best = candidate;
+                    bestScore = score;
+                }
+            }
+            if (bestScore == 3) {
+                break;
+            }
+        }
+        if (bestScore >= 2 || (bestScore == 1 && singleMatches == 1)) {
+            return best + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * @return 行号处的内容是否仍与指纹一致，指纹为空时认为一致
+     */
+    public static boolean matches(@NotNull CharSequence text, int line, @Nullable String fingerprint) {
+        return fingerprint == null || matches(lineHashes(text), line, fingerprint);
+    }
+
+    /**
+     * 与 {@link #matches(CharSequence, int, String)} 相同，使用已经计算好的每行哈希
+     */
+    public static boolean matches(int[] hashes, int line, @Nullable String fingerprint) {
+        if (fingerprint == null) {
+            return true;
+        }
+        final int[] expected = parse(fingerprint);
+        return expected != null && line >= 1 && line <= hashes.length && score(hashes, line - 1, expected) == 3;
+    }
+
+    /**
+     * 当前行不匹配时为 0，否则为 1 加上匹配的上下行数
+     */
+    private static int score(int[] hashes, int index, int[] expected) {
+        if (hashes[index] != expected[1]) {
+            return 0;
+        }
+        int score = 1;
+        if (hashAt(hashes, index - 1) == expected[0]) {
+            score++;
+        }
+        if (hashAt(hashes, index + 1) == expected[2]) {
+            score++;
+        }
+        return score;
+    }
+
+    private static int hashAt(int[] hashes, int index) {
+        return index >= 0 && index < hashes.length ? hashes[index] : 0;
+    }
+
+    /**
+     * 一次扫描计算每行去掉空白后的哈希，行数与 Document 一致，以换行结尾时最后有一个空行。
+     * 同一文件中有多个步骤时只计算一次，传给其他方法的重载
+     *
+     * @param text 文件内容
+     * @return 每行的哈希
+     */
+    public static int[] lineHashes(@NotNull CharSequence text) {
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        final int[] hashes = new int[lines];
+        int line = 0;
+        int hash = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '\n') {
+                hashes[line++] = hash;
+                hash = 0;
+            } else if (!Character.isWhitespace(c)) {
+                hash = 31 * hash + c;
+            }
+        }
+        hashes[line] = hash;
+        return hashes;
+    }
+
+    private static int[] parse(@Nullable String fingerprint) {
+        if (fingerprint == null) {
+            return null;
+        }
+        final String[] parts = fingerprint.split("-");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new int[]{
+                    Integer.parseUnsignedInt(parts[0], 16),
+                    Integer.parseUnsignedInt(parts[1], 16),
+                    Integer.parseUnsignedInt(parts[2], 16)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.Inlay;
+import com.intellij.openapi.editor.event.EditorFactoryEvent;
+import com.intellij.openapi.editor.event.EditorFactoryListener;
+import com.intellij.openapi.editor.ex.util.EditorUtil;
+import com.intellij.openapi.editor.impl.DocumentMarkupModel;
+import com.intellij.openapi.editor.markup.GutterIconRenderer;
+import com.intellij.openapi.editor.markup.HighlighterLayer;
+import com.intellij.openapi.editor.markup.HighlighterTargetArea;
+import com.intellij.openapi.editor.markup.MarkupModel;
+import com.intellij.openapi.editor.markup.RangeHighlighter;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.text.CharArrayUtil;
+import icons.Icons;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vito.mycodetour.tours.domain.Step;
+import org.vito.mycodetour.tours.domain.Tour;
+import org.vito.mycodetour.tours.state.StateManager;
+import org.vito.mycodetour.tours.state.StepIndex;
+import org.vito.mycodetour.tours.state.StepSelectionNotifier;
+import org.vito.mycodetour.tours.state.TourUpdateNotifier;
+import org.vito.mycodetour.tours.ui.StepTitleInlayRenderer;
+
+import javax.swing.Icon;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 推送式的步骤行图标：文件打开时在步骤所在行装上带图标的 RangeHighlighter，
+ * 高亮区间随文档编辑移动，上方增删代码后图标仍停在原来的代码上。
+ * 开启步骤标题提示时，同时在这些行上方加上显示 tour 和步骤标题的内嵌提示。
+ * 只在文件打开、关闭以及 tour 变化时更新，不参与每次的代码分析；
+ * tour 变化后只重建步骤确实变化了的文件
+ * <p>
+ * 所有方法都在 EDT 中调用
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class StepGutterManager implements Disposable {
+
+    private final Project project;
+    private final Map<VirtualFile, Installed> installed = new HashMap<>();
+    /**
+     * 移除时高亮跟踪到的行，重建或重新打开文件时文档没有再变化就装回这些行，
+     * 否则没有指纹的步骤会回到记录的行号上
+     */
+    private final Map<VirtualFile, TrackedLines> tracked = new HashMap<>();
+
+    public StepGutterManager(Project project) {
+        this.project = project;
+    }
+
+    public static StepGutterManager getInstance(@NotNull Project project) {
+        return project.getService(StepGutterManager.class);
+    }
+
+    /**
+     * @return 是否启用推送式的行图标，关闭时由 {@link org.vito.mycodetour.tours.ui.TourLineMarkerProvider} 计算
+     */
+    public static boolean isEnabled() {
+        return AppSettingsState.getInstance().isGutterPushMode();
+    }
+
+    /**
+     * @return 是否在步骤所在行上方显示步骤标题
+     */
+    public static boolean isInlaysEnabled() {
+        return AppSettingsState.getInstance().isStepInlays();
+    }
+
+    /**
+     * 设置变化后刷新所有打开的工程，行图标的来源切换后重新运行代码分析
+     */
+    public static void refreshAll() {
+        for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+            if (!project.isDisposed()) {
+                getInstance(project).refreshOpenFiles(true);
+                DaemonCodeAnalyzer.getInstance(project).restart();
+            }
+        }
+    }
+
+    /**
+     * 为文件重新装上步骤图标和标题提示，之前装上的会先移除
+     *
+     * @param file 打开的文件
+     */
+    public void install(@NotNull VirtualFile file) {
+        remove(file);
+        if (!(isEnabled() || isInlaysEnabled()) || project.isDisposed() || !file.isValid()) {
+            return;
+        }
+        final Document document = FileDocumentManager.getInstance().getDocument(file);
+        if (document == null) {
+            return;
+        }
+        final Int2ObjectMap<Step> steps = stepsOf(file);
+        if (!steps.isEmpty()) {
+            install(file, document, steps);
+        }
+    }
+
+    /**
+     * 移除文件上的步骤图标和标题提示
+     *
+     * @param file 文件
+     */
+    public void remove(@NotNull VirtualFile file) {
+        final Installed removed = installed.remove(file);
+        if (removed != null) {
+            final Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+            if (document != null) {
+                tracked.put(file, new TrackedLines(document.getModificationStamp(), removed.currentLines()));
+            }
+            removed.dispose();
+        }
+    }
+
+    /**
+     * 为所有打开的文件更新图标
+     *
+     * @param force 为 true 时全部重建；否则只重建步骤有变化的文件，其余文件只换上新的步骤对象
+     */
+    public void refreshOpenFiles(boolean force) {
+        if (project.isDisposed()) {
+            return;
+        }
+        final VirtualFile[] openFiles = FileEditorManager.getInstance(project).getOpenFiles();
+        final Set<VirtualFile> stale = new HashSet<>(installed.keySet());
+        for (VirtualFile file : openFiles) {
+            stale.remove(file);
+            final Installed current = installed.get(file);
+            if (force || current == null) {
+                install(file);
+                continue;
+            }
+            final Int2ObjectMap<Step> steps = stepsOf(file);
+            if (current.sameSteps(steps)) {
+                current.rebind(steps);
+            } else {
+                install(file);
+            }
+        }
+        stale.forEach(this::remove);
+    }
+
+    /**
+     * 步骤当前所在的行，行图标装上后随编辑移动
+     *
+     * @param file 文件
+     * @param step 步骤
+     * @return 从 1 开始的行号，没有装上图标时返回 -1
+     */
+    public int currentLine(@NotNull VirtualFile file, @NotNull Step step) {
+        final Installed current = installed.get(file);
+        if (current == null) {
+            return -1;
+        }
+        for (int i = 0; i < current.highlighters.size(); i++) {
+            final RangeHighlighter highlighter = current.highlighters.get(i);
+            if (highlighter.isValid() && current.stepAt(i) == step) {
+                return highlighter.getDocument().getLineNumber(highlighter.getStartOffset()) + 1;
+            }
+        }
+        return -1;
+    }
+
+    private void install(VirtualFile file, Document document, Int2ObjectMap<Step> steps) {
+        final Installed target = new Installed(steps);
+        final boolean icons = isEnabled();
+        final MarkupModel markupModel = DocumentMarkupModel.forDocument(document, project, true);
+        final TrackedLines trackedLines = tracked.remove(file);
+        final Int2IntMap seeds = trackedLines != null && trackedLines.stamp == document.getModificationStamp()
+                ? trackedLines.lines
+                : null;
+        for (Int2ObjectMap.Entry<Step> entry : steps.int2ObjectEntrySet()) {
+            // 记录的行号没变的步骤装回之前跟踪到的行，其余的在行号漂移时装在按内容指纹找到的行上
+            final int line = seeds != null && seeds.containsKey(entry.getIntKey())
+                    ? seeds.get(entry.getIntKey())
+                    : StepReanchorer.currentLine(entry.getValue(), document) - 1;
+            if (line < 0 || line >= document.getLineCount()) {
+                continue;
+            }
+            // 没有行图标时也装上不带图标的高亮，用来跟踪步骤所在的行
+            final RangeHighlighter highlighter = markupModel.addRangeHighlighter(
+                    document.getLineStartOffset(line),
+                    document.getLineEndOffset(line),
+                    HighlighterLayer.ADDITIONAL_SYNTAX,
+                    null,
+                    HighlighterTargetArea.LINES_IN_RANGE);
+            if (icons) {
+                highlighter.setGutterIconRenderer(new StepIconRenderer(project, entry.getValue()));
+            }
+            target.highlighters.add(highlighter);
+            target.lines.add(entry.getIntKey());
+        }
+        if (isInlaysEnabled()) {
+            for (Editor editor : EditorFactory.getInstance().getEditors(document, project)) {
+                addInlays(editor, target);
+            }
+        }
+        installed.put(file, target);
+    }
+
+    /**
+     * 在编辑器中每个步骤所在行的上方加上标题提示。
+     * 直接使用 InlayModel 的块状元素而不是内嵌提示的 API：InlayHintsProvider 和 CodeVisionProvider
+     * 按语言注册，由每次代码分析拉取，而步骤可以在任何类型的文件中，提示与行图标一样只在文件打开和
+     * tour 变化时推送；声明式提示也只能显示在行内，不能显示在行上方
+     */
+    private static void addInlays(Editor editor, Installed target) {
+        final Document document = editor.getDocument();
+        final CharSequence text = document.getImmutableCharSequence();
+        for (int i = 0; i < target.highlighters.size(); i++) {
+            final RangeHighlighter highlighter = target.highlighters.get(i);
+            final Step step = target.stepAt(i);
+            if (!highlighter.isValid() || step == null) {
+                continue;
+            }
+            final int lineStart = highlighter.getStartOffset();
+            final int codeStart = CharArrayUtil.shiftForward(text, lineStart, highlighter.getEndOffset(), " \t");
+            // 按编辑器的制表符宽度换算成列数
+            final int indent = EditorUtil.calcColumnNumber(editor, text, lineStart, codeStart);
+            final Inlay<?> inlay = editor.getInlayModel().addBlockElement(lineStart, false, true, 0,
+                    new StepTitleInlayRenderer(step, indent));
+            if (inlay != null) {
+                target.inlays.add(inlay);
+            }
+        }
+    }
+
+    /**
+     * 文件中 行号 -> 步骤，步骤中的文件可以是相对于源码根目录的路径，也可以只是文件名，
+     * 同一行两者都有时以相对路径为准
+     */
+    private Int2ObjectMap<Step> stepsOf(VirtualFile file) {
+        final StepIndex stepIndex = StateManager.getInstance().getState(project).getStepIndex();
+        final Int2ObjectMap<Step> steps = new Int2ObjectOpenHashMap<>();
+        final Int2ObjectMap<Step> byFileName = stepIndex.getLineSteps(file.getName());
+        if (byFileName != null) {
+            steps.putAll(byFileName);
+        }
+        final VirtualFile sourceRoot = ProjectFileIndex.getInstance(project).getSourceRootForFile(file);
+        final String relativePath = sourceRoot != null ? VfsUtilCore.getRelativePath(file, sourceRoot) : null;
+        final Int2ObjectMap<Step> byRelativePath = relativePath != null ? stepIndex.getLineSteps(relativePath) : null;
+        if (byRelativePath != null) {
+            steps.putAll(byRelativePath);
+        }
+        return steps;
+    }
+
+    @Override
+    public void dispose() {
+        installed.values().forEach(Installed::dispose);
+        installed.clear();
+        tracked.clear();
+    }
+
+    /**
+     * 文档的修改标记，以及 步骤索引中的行号 -> 高亮所在的行（从 0 开始）
+     */
+    private static final class TrackedLines {
+        private final long stamp;
+        private final Int2IntMap lines;
+
+        private TrackedLines(long stamp, Int2IntMap lines) {
+            this.stamp = stamp;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * 一个文件上装上的高亮和提示，以及装上时的步骤
+     */
+    private static final class Installed {
+        private Int2ObjectMap<Step> steps;
+        private final List<RangeHighlighter> highlighters = new ArrayList<>();
+        /**
+         * 每个高亮装上时的行号，即步骤索引中的行号
+         */
+        private final IntList lines = new IntArrayList();
+        private final List<Inlay<?>> inlays = new ArrayList<>();
+
+        private Installed(Int2ObjectMap<Step> steps) {
+            this.steps = steps;
+        }
+
+        /**
+         * @return 步骤的行号、内容以及所属 tour 的标题是否都没变
+         */
+        private boolean sameSteps(Int2ObjectMap<Step> other) {
+            if (other.size() != steps.size()) {
+                return false;
+            }
+            for (Int2ObjectMap.Entry<Step> entry : other.int2ObjectEntrySet()) {
+                final Step step = steps.get(entry.getIntKey());
+                if (!entry.getValue().equals(step)
+                        || !StepTitleInlayRenderer.textOf(entry.getValue()).equals(StepTitleInlayRenderer.textOf(step))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * tour 重新加载后步骤对象会变，内容相同时只换上新的对象
+         */
+        private void rebind(Int2ObjectMap<Step> other) {
+            steps = other;
+            for (int i = 0; i < highlighters.size(); i++) {
+                if (highlighters.get(i).getGutterIconRenderer() instanceof StepIconRenderer renderer) {
+                    renderer.step = stepAt(i);
+                }
+            }
+        }
+
+        /**
+         * @return 步骤索引中的行号 -> 高亮当前所在的行（从 0 开始）
+         */
+        private Int2IntMap currentLines() {
+            final Int2IntMap current = new Int2IntOpenHashMap();
+            for (int i = 0; i < highlighters.size(); i++) {
+                final RangeHighlighter highlighter = highlighters.get(i);
+                if (highlighter.isValid()) {
+                    current.put(lines.getInt(i), highlighter.getDocument().getLineNumber(highlighter.getStartOffset()));
+                }
+            }
+            return current;
+        }
+
+        private @Nullable Step stepAt(int index) {
+            return steps.get(lines.getInt(index));
+        }
+
+        private void dispose() {
+            highlighters.stream().filter(RangeHighlighter::isValid).forEach(RangeHighlighter::dispose);
+            inlays.stream().filter(Inlay::isValid).forEach(Disposer::dispose);
+        }
+    }
+
+    /**
+     * 步骤行图标，点击后选中步骤
+     */
+    private static final class StepIconRenderer extends GutterIconRenderer {
+        private final Project project;
+        private Step step;
+
+        private StepIconRenderer(Project project, Step step) {
+            this.project = project;
+            this.step = step;
+        }
+
+        @Override
+        public @NotNull Icon getIcon() {
+            return Icons.STEP_12;
+        }
+
+        @Override
+        public @Nullable String getTooltipText() {
+            return step.getTitle();
+        }
+
+        @Override
+        public @NotNull String getAccessibleName() {
+            return "Code Tour Step accessible";
+        }
+
+        @Override
+        public boolean isNavigateAction() {
+            return true;
+        }
+
+        @Override
+        public @Nullable AnAction getClickAction() {
+            return DumbAwareAction.create(e -> project.getMessageBus()
+                    .syncPublisher(StepSelectionNotifier.TOPIC)
+                    .selectStep(step));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StepIconRenderer other && other.step.equals(step);
+        }
+
+        @Override
+        public int hashCode() {
+            return step.hashCode();
+        }
+    }
+
+    /**
+     * 文件打开、关闭以及 tour 变化时更新行图标和标题提示，在 plugin.xml 中注册
+     */
+    public static final class Listener implements FileEditorManagerListener, TourUpdateNotifier {
+        private final Project project;
+
+        public Listener(Project project) {
+            this.project = project;
+        }
+
+        @Override
+        public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+            if (isEnabled() || isInlaysEnabled()) {
+                getInstance(project).install(file);
+            }
+        }
+
+        @Override
+        public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+            if (!source.isFileOpen(file)) {
+                getInstance(project).remove(file);
+            }
+        }
+
+        @Override
+        public void tourUpdated(Tour tour) {
+            // 加载 tour 时可能在后台线程发布
+            ApplicationManager.getApplication().invokeLater(
+                    () -> getInstance(project).refreshOpenFiles(false), project.getDisposed());
+        }
+    }
+
+    /**
+     * 已装上提示的文件在新的编辑器（如拆分窗口）中打开时补上标题提示，在 plugin.xml 中注册
+     */
+    public static final class EditorListener implements EditorFactoryListener {
+        @Override
+        public void editorCreated(@NotNull EditorFactoryEvent event) {
+            final Editor editor = event.getEditor();
+            final Project project = editor.getProject();
+            if (project == null || project.isDisposed() || !isInlaysEnabled()) {
+                return;
+            }
+            final VirtualFile file = FileDocumentManager.getInstance().getFile(editor.getDocument());
+            final Installed target = file != null ? getInstance(project).installed.get(file) : null;
+            if (target != null) {
+                addInlays(editor, target);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vito.mycodetour.tours.domain.Step;
+import org.vito.mycodetour.tours.domain.Tour;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 播放 tour 时预先准备相邻的步骤：在后台的非阻塞读操作中解析导航目标（文件或 PSI，
+ * 反编译类会在这里生成源码）、加载文档，并预先渲染步骤说明。
+ * 点击上一步/下一步时直接使用准备好的结果
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class StepPrefetcher implements Disposable {
+
+    private static final int MAX_RENDERED = 8;
+    private static final int[] NEIGHBOURS = {1, -1};
+
+    private final Project project;
+    /**
+     * markdown内容 -> 渲染好的html，内容变化后自然不再命中
+     */
+    private final Map<String, Rendered> rendered = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Rendered> eldest) {
+                    return size() > MAX_RENDERED;
+                }
+            });
+    /**
+     * 持有相邻步骤的文档，避免预热后被回收
+     */
+    private final Map<Integer, Document> warmDocuments = new ConcurrentHashMap<>();
+
+    public StepPrefetcher(Project project) {
+        this.project = project;
+    }
+
+    public static StepPrefetcher getInstance(@NotNull Project project) {
+        return project.getService(StepPrefetcher.class);
+    }
+
+    /**
+     * 预取当前步骤的前后两个步骤，重复调用时未完成的预取会被合并
+     *
+     * @param step 当前展示的步骤
+     */
+    public void prefetchAround(@NotNull Step step) {
+        Tour tour = step.getOwner();
+        if (tour == null || tour.getSteps() == null) {
+            return;
+        }
+        int index = tour.getSteps().indexOf(step);
+        if (index < 0) {
+            return;
+        }
+        for (int offset : NEIGHBOURS) {
+            Step neighbour = tour.getStep(index + offset);
+            if (neighbour == null) {
+                warmDocuments.remove(offset);
+                continue;
+            }
+            prefetch(neighbour, offset);
+        }
+    }
+
+    /**
+     * 渲染步骤，已预先渲染过时直接返回
+     *
+     * @param step 步骤
+     * @return html内容
+     */
+    public String render(@NotNull Step step) {
+        String baseDir = Utils.baseDirOf(project, step.getOwner());
+        String markdown = Utils.fullDocMarkdown(step);
+        String key = baseDir + '\n' + markdown;
+        // 先取修改计数再渲染，渲染期间的变化会使这次的结果在下次不命中
+        long generation = DiagramSvgCache.getInstance().getGeneration();
+        long structureStamp = VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS.getModificationCount();
+        Rendered cached = rendered.get(key);
+        if (cached != null && cached.isUpToDate(generation, structureStamp)) {
+            return cached.html;
+        }
+        List<VirtualFile> embeds = new ArrayList<>();
+        for (String embed : MarkdownPreprocessor.embeds(markdown)) {
+            VirtualFile file = MarkdownPreprocessor.findResource(baseDir, embed);
+            if (file != null) {
+                embeds.add(file);
+            }
+        }
+        long embedsStamp = Rendered.stampOf(embeds);
+        String html = Utils.mdToHtml(markdown, baseDir);
+        rendered.put(key, new Rendered(html, generation, structureStamp, embeds, embedsStamp));
+        return html;
+    }
+
+    private void prefetch(Step step, int offset) {
+        ReadAction.nonBlocking(() -> warmTarget(step))
+                .inSmartMode(project)
+                .expireWith(this)
+                .coalesceBy(this, offset)
+                .submit(AppExecutorUtil.getAppExecutorService())
+                .onSuccess(document -> {
+                    if (document != null) {
+                        warmDocuments.put(offset, document);
+                    } else {
+                        warmDocuments.remove(offset);
+                    }
+                    render(step);
+                });
+    }
+
+    /**
+     * 解析步骤的导航目标并加载文档，结果留在 {@link NavigationCache} 中
+     *
+     * @return 目标文件的文档，无法确定唯一目标时返回 null
+     */
+    private @Nullable Document warmTarget(Step step) {
+        String reference = step.getFile();
+        if (reference == null || project.isDisposed()) {
+            return null;
+        }
+        NavigationCache cache = NavigationCache.getInstance(project);
+        VirtualFile file;
+        if (step.getLine() == null) {
+            // 形如 MyClass#myMethod 或 com.fr.MyClass
+            String[] parts = reference.split("#");
+            PsiElement element = parts.length == 2 ? cache.findMember(parts[0], parts[1]) : cache.findClass(parts[0]);
+            if (element == null) {
+                return null;
+            }
+            // 库中的类在这里找到源码或完成反编译
+            PsiFile psiFile = element.getNavigationElement().getContainingFile();
+            file = psiFile != null ? psiFile.getVirtualFile() : null;
+        } else {
+            List<VirtualFile> files = cache.findFiles(reference);
+            file = files.size() == 1 ? files.get(0) : null;
+        }
+        return file != null ? FileDocumentManager.getInstance().getDocument(file) : null;
+    }
+
+    @Override
+    public void dispose() {
+        warmDocuments.clear();
+        rendered.clear();
+    }
+
+    /**
+     * 渲染好的html以及渲染时的修改计数。html 中是否直接使用渲染好的图表、图表的 key、
+     * 图片是否存在取决于图表缓存、文件结构和嵌入的文件，三者都没变时才有效
+     */
+    private static final class Rendered {
+        private final String html;
+        private final long generation;
+        private final long structureStamp;
+        private final List<VirtualFile> embeds;
+        private final long embedsStamp;
+
+        private Rendered(String html, long generation, long structureStamp, List<VirtualFile> embeds,
+                         long embedsStamp) {
+            this.html = html;
+            this.generation = generation;
+            this.structureStamp = structureStamp;
+            this.embeds = embeds;
+            this.embedsStamp = embedsStamp;
+        }
+
+        private boolean isUpToDate(long currentGeneration, long currentStructureStamp) {
+            return generation == currentGeneration && structureStamp == currentStructureStamp
+                    && embedsStamp == stampOf(embeds);
+        }
+
+        private static long stampOf(List<VirtualFile> files) {
+            long stamp = 0;
+            for (VirtualFile file : files) {
+                stamp = stamp * 31 + (file.isValid() ? file.getModificationStamp() : -1);
+            }
+            return stamp;
+        }
+    }
+}
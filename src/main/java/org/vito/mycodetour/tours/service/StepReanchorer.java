@@ -0,0 +1,330 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vito.mycodetour.tours.domain.Step;
+import org.vito.mycodetour.tours.domain.Tour;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 重新定位文件行号步骤：导航时按内容指纹跳到代码实际所在的行；
+ * 批量修正时先按记录时的 git 提交到工作区的差异映射行号，再用内容指纹确认或在附近查找，
+ * 同一提交下同一文件的差异只计算一次，所有引用该文件的步骤共用。
+ * <p>
+ * 修正后行号变为工作区中的行号；文件相对 HEAD 没有改动时提交记为当前的 HEAD，有改动时不记录提交
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class StepReanchorer {
+
+    private static final Key<LineHashes> LINE_HASHES = Key.create("mycodetour.line.hashes");
+
+    private StepReanchorer() {
+    }
+
+    /**
+     * 按文档中步骤所在行的内容记录指纹以及当前的 git 提交，行号超出文档范围时清除指纹。
+     * 行号是工作区中的行号，文件相对 HEAD 有改动时它不是 HEAD 中的行号，不记录提交。
+     * 在 EDT 中调用，查找仓库、读取 HEAD 和查看改动需要访问磁盘，在后台线程中进行
+     *
+     * @param project    工程
+     * @param step       步骤
+     * @param document   步骤所在文件的文档
+     * @param file       步骤所在的文件
+     * @param onRecorded 记录完成后在 EDT 中执行，工程关闭后不再执行
+     */
+    public static void recordAnchor(@NotNull Project project, @NotNull Step step, @NotNull Document document,
+                                    @NotNull VirtualFile file, @NotNull Runnable onRecorded) {
+        if (step.getLine() == null) {
+            onRecorded.run();
+            return;
+        }
+        step.setAnchor(StepAnchor.fingerprint(lineHashes(document), step.getLine()));
+        if (!file.isInLocalFileSystem()) {
+            step.setRevision(null);
+            onRecorded.run();
+            return;
+        }
+        final Path path = Path.of(file.getPath());
+        final boolean unsaved = FileDocumentManager.getInstance().isDocumentUnsaved(document);
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            final Path root = unsaved ? null : GitSupport.findRoot(path);
+            final String revision = root != null && isClean(root, path) ? GitSupport.headRevision(root) : null;
+            ApplicationManager.getApplication().invokeLater(() -> {
+                step.setRevision(revision);
+                onRecorded.run();
+            }, project.getDisposed());
+        });
+    }
+
+    /**
+     * @return 文件在工作区中是否与 HEAD 相同，git 不可用时视为不同
+     */
+    private static boolean isClean(Path root, Path file) {
+        final Set<String> changed = GitSupport.changedFiles(root, relativePath(root, file));
+        return changed != null && changed.isEmpty();
+    }
+
+    private static String relativePath(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    /**
+     * 步骤当前实际所在的行，没有指纹或找不到匹配的行时返回记录的行号
+     *
+     * @param step     文件行号步骤
+     * @param document 步骤所在文件的文档
+     * @return 从 1 开始的行号
+     */
+    public static int currentLine(@NotNull Step step, @NotNull Document document) {
+        return step.getAnchor() == null
+                ? (step.getLine() != null ? step.getLine() : 1)
+                : currentLine(step, lineHashes(document));
+    }
+
+    /**
+     * 与 {@link #currentLine(Step, Document)} 相同，同一文件中的多个步骤共用每行的哈希
+     *
+     * @param step   文件行号步骤
+     * @param hashes 步骤所在文件的 {@link #lineHashes(Document)}
+     * @return 从 1 开始的行号
+     */
+    public static int currentLine(@NotNull Step step, int[] hashes) {
+        final int line = step.getLine() != null ? step.getLine() : 1;
+        if (step.getAnchor() == null) {
+            return line;
+        }
+        final int located = StepAnchor.locate(hashes, line, step.getAnchor());
+        return located > 0 ? located : line;
+    }
+
+    /**
+     * 文档每行的哈希，按文档的修改计数缓存在文档上，文档不变时同一文件中的所有步骤只计算一次
+     *
+     * @param document 文档
+     * @return 每行的哈希
+     */
+    public static int[] lineHashes(@NotNull Document document) {
+        final long stamp = document.getModificationStamp();
+        LineHashes cached = document.getUserData(LINE_HASHES);
+        if (cached == null || cached.stamp != stamp) {
+            cached = new LineHashes(stamp, StepAnchor.lineHashes(document.getImmutableCharSequence()));
+            document.putUserData(LINE_HASHES, cached);
+        }
+        return cached.hashes;
+    }
+
+    /**
+     * 找出所有需要修正的文件行号步骤。在后台线程中调用，不能持有读锁：
+     * 解析文件和读取文档在智能模式的读操作中进行，git 差异在读操作之外计算
+     *
+     * @param project 工程
+     * @param tours   tour 列表
+     * @return 行号已漂移的步骤，以及还没有指纹或提交、可以按当前行记录的步骤
+     */
+    public static @NotNull List<Fix> findFixes(@NotNull Project project, @NotNull List<Tour> tours) {
+        // 1. 解析步骤所在的文件
+        final List<Target> targets = ReadAction.nonBlocking(() -> resolveTargets(project, tours))
+                .inSmartMode(project)
+                .executeSynchronously();
+
+        // 2. 每个仓库只读一次 HEAD、查看一次改动，每个 提交+文件 只计算一次差异
+        final Map<Path, Path> roots = new HashMap<>();
+        final Map<Path, String> heads = new HashMap<>();
+        final Map<Path, Set<String>> changes = new HashMap<>();
+        final Map<String, LineRemapper> remappers = new HashMap<>();
+        for (Target target : targets) {
+            ProgressManager.checkCanceled();
+            if (target.path == null) {
+                continue;
+            }
+            final Path dir = target.path.getParent();
+            if (!roots.containsKey(dir)) {
+                roots.put(dir, GitSupport.findRoot(dir));
+            }
+            target.root = roots.get(dir);
+            if (target.root == null) {
+                continue;
+            }
+            target.head = heads.computeIfAbsent(target.root, GitSupport::headRevision);
+            final String relativePath = relativePath(target.root, target.path);
+            final Set<String> changed = changes.computeIfAbsent(target.root, root -> GitSupport.changedFiles(root, null));
+            target.changed = changed == null || changed.contains(relativePath);
+            final String revision = target.step.getRevision();
+            if (revision == null || revision.equals(target.head)) {
+                continue;
+            }
+            final String key = revision + '\n' + relativePath;
+            if (!remappers.containsKey(key)) {
+                remappers.put(key, GitSupport.diff(target.root, revision, relativePath));
+            }
+            target.remapper = remappers.get(key);
+        }
+
+        // 3. 按映射后的行号和内容指纹确定新的位置，每个文件只计算一次每行的哈希
+        return ReadAction.nonBlocking(() -> {
+            final List<Fix> fixes = new ArrayList<>();
+            for (Target target : targets) {
+                ProgressManager.checkCanceled();
+                final Document document = FileDocumentManager.getInstance().getDocument(target.file);
+                final Fix fix = document != null
+                        ? fixOf(target, lineHashes(document),
+                        target.changed || FileDocumentManager.getInstance().isDocumentUnsaved(document))
+                        : null;
+                if (fix != null) {
+                    fixes.add(fix);
+                }
+            }
+            return fixes;
+        }).executeSynchronously();
+    }
+
+    private static List<Target> resolveTargets(Project project, List<Tour> tours) {
+        final List<Target> targets = new ArrayList<>();
+        final NavigationCache cache = NavigationCache.getInstance(project);
+        for (Tour tour : tours) {
+            if (tour.getSteps() == null) {
+                continue;
+            }
+            for (Step step : tour.getSteps()) {
+                ProgressManager.checkCanceled();
+                if (step.getFile() == null || step.getLine() == null) {
+                    continue;
+                }
+                final List<VirtualFile> files = cache.findFiles(step.getFile());
+                if (files.size() != 1) {
+                    continue;
+                }
+                final VirtualFile file = files.get(0);
+                targets.add(new Target(step, file, file.isInLocalFileSystem() ? Path.of(file.getPath()) : null));
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * @param changed 文件相对 HEAD 是否有改动，有改动时新的行号不是 HEAD 中的行号，不记为 HEAD
+     */
+    private static @Nullable Fix fixOf(Target target, int[] hashes, boolean changed) {
+        final Step step = target.step;
+        final String head = changed ? null : target.head;
+        final int line = step.getLine();
+        final String anchor = step.getAnchor();
+
+        // 差异能精确映射时以差异为准，该行被修改过时从改动的位置开始按内容查找
+        int origin = line;
+        boolean exact = false;
+        if (target.remapper != null) {
+            final int mapped = target.remapper.map(line);
+            exact = mapped > 0;
+            origin = exact ? mapped : target.remapper.approximate(line);
+        }
+        int newLine = exact ? origin : line;
+        if (anchor != null && !StepAnchor.matches(hashes, origin, anchor)) {
+            final int located = StepAnchor.locate(hashes, origin, anchor);
+            if (located > 0) {
+                newLine = located;
+            }
+        } else if (anchor != null) {
+            newLine = origin;
+        }
+
+        final String newAnchor = StepAnchor.fingerprint(hashes, newLine);
+        if (newAnchor == null) {
+            return null;
+        }
+        final boolean moved = newLine != line;
+        final boolean unrecorded = anchor == null || (step.getRevision() == null && head != null);
+        if (!moved && !unrecorded) {
+            return null;
+        }
+        // 行号不变时保留原提交，行号仍是该提交中的行号
+        final String newRevision = moved || step.getRevision() == null ? head : step.getRevision();
+        return new Fix(step, newLine, newAnchor, newRevision);
+    }
+
+    private static final class LineHashes {
+        private final long stamp;
+        private final int[] hashes;
+
+        private LineHashes(long stamp, int[] hashes) {
+            this.stamp = stamp;
+            this.hashes = hashes;
+        }
+    }
+
+    /**
+     * 一个步骤及其所在的文件、仓库
+     */
+    private static final class Target {
+        private final Step step;
+        private final VirtualFile file;
+        private final Path path;
+        private Path root;
+        private String head;
+        /**
+         * 文件在工作区中相对 HEAD 是否有改动
+         */
+        private boolean changed;
+        private LineRemapper remapper;
+
+        private Target(Step step, VirtualFile file, @Nullable Path path) {
+            this.step = step;
+            this.file = file;
+            this.path = path;
+        }
+    }
+
+    /**
+     * 一个步骤的修正：新的行号、指纹和提交
+     */
+    public static final class Fix {
+        private final Step step;
+        private final int line;
+        private final String anchor;
+        private final String revision;
+
+        private Fix(Step step, int line, String anchor, @Nullable String revision) {
+            this.step = step;
+            this.line = line;
+            this.anchor = anchor;
+            this.revision = revision;
+        }
+
+        public Step getStep() {
+            return step;
+        }
+
+        /**
+         * @return 行号是否漂移，否则只是补上指纹或提交
+         */
+        public boolean isDrifted() {
+            return !Objects.equals(step.getLine(), line);
+        }
+
+        /**
+         * 修改步骤的行号、指纹和提交，需要在 EDT 中调用，之后由调用方保存 tour
+         */
+        public void apply() {
+            step.setLine(line);
+            step.setAnchor(anchor);
+            step.setRevision(revision);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMember;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiPackage;
+import com.intellij.refactoring.listeners.RefactoringElementAdapter;
+import com.intellij.refactoring.listeners.RefactoringElementListener;
+import com.intellij.refactoring.listeners.RefactoringElementListenerProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 类、包、方法、字段重命名或移动后，通过 StepReferenceUpdater 改写引用它们的步骤。
+ * 重构前记下原来的引用，没有步骤引用时不监听
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public class StepRefactoringListenerProvider implements RefactoringElementListenerProvider {
+
+    @Override
+    public @Nullable RefactoringElementListener getListener(PsiElement element) {
+        final StepReferenceUpdater updater = StepReferenceUpdater.getInstance(element.getProject());
+        if (element instanceof PsiMethod || element instanceof PsiField) {
+            final Member old = Member.of((PsiMember) element);
+            return old != null && updater.isReferenced(old.className + "#") ? new MemberListener(updater, old) : null;
+        }
+        final String oldName = qualifiedName(element);
+        return oldName != null && !oldName.isEmpty() && updater.isReferenced(oldName)
+                ? new QualifiedNameListener(updater, oldName)
+                : null;
+    }
+
+    /**
+     * @return 类的全限定名或包名，其他元素返回 null
+     */
+    private static @Nullable String qualifiedName(PsiElement element) {
+        if (element instanceof PsiClass psiClass) {
+            return psiClass.getQualifiedName();
+        }
+        return element instanceof PsiPackage psiPackage ? psiPackage.getQualifiedName() : null;
+    }
+
+    private static final class QualifiedNameListener extends RefactoringElementAdapter {
+        private final StepReferenceUpdater updater;
+        private final String oldName;
+
+        private QualifiedNameListener(StepReferenceUpdater updater, String oldName) {
+            this.updater = updater;
+            this.oldName = oldName;
+        }
+
+        @Override
+        protected void elementRenamedOrMoved(@NotNull PsiElement newElement) {
+            final String newName = qualifiedName(newElement);
+            if (newName != null && !newName.isEmpty()) {
+                updater.qualifiedNameChanged(oldName, newName);
+            }
+        }
+
+        @Override
+        public void undoElementMovedOrRenamed(@NotNull PsiElement newElement, @NotNull String oldQualifiedName) {
+            final String newName = qualifiedName(newElement);
+            if (newName != null && !newName.isEmpty()) {
+                updater.qualifiedNameChanged(newName, oldName);
+            }
+        }
+    }
+
+    private static final class MemberListener extends RefactoringElementAdapter {
+        private final StepReferenceUpdater updater;
+        private final Member old;
+
+        private MemberListener(StepReferenceUpdater updater, Member old) {
+            this.updater = updater;
+            this.old = old;
+        }
+
+        @Override
+        protected void elementRenamedOrMoved(@NotNull PsiElement newElement) {
+            final Member current = newElement instanceof PsiMember member ? Member.of(member) : null;
+            if (current != null) {
+                updater.memberChanged(old.className, old.name, old.signature, current.className, current.name);
+            }
+        }
+
+        @Override
+        public void undoElementMovedOrRenamed(@NotNull PsiElement newElement, @NotNull String oldQualifiedName) {
+            final Member current = newElement instanceof PsiMember member ? Member.of(member) : null;
+            if (current != null) {
+                updater.memberChanged(current.className, current.name, current.signature, old.className, old.name);
+            }
+        }
+    }
+
+    /**
+     * 方法或字段：所在类、名称以及方法签名
+     */
+    private static final class Member {
+        private final String className;
+        private final String name;
+        private final String signature;
+
+        private Member(String className, String name, @Nullable String signature) {
+            this.className = className;
+            this.name = name;
+            this.signature = signature;
+        }
+
+        private static @Nullable Member of(PsiMember member) {
+            final PsiClass containingClass = member.getContainingClass();
+            final String className = containingClass != null ? containingClass.getQualifiedName() : null;
+            if (className == null || member.getName() == null) {
+                return null;
+            }
+            return new Member(className, member.getName(),
+                    member instanceof PsiMethod method ? PsiHelper.methodWithParameter(method) : null);
+        }
+    }
+}
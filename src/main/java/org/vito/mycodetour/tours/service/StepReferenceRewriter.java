@@ -0,0 +1,84 @@
+package org.vito.mycodetour.tours.service;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 按重命名、移动改写步骤中的引用文本，不改变引用的形式：
+ * 方法引用带不带参数签名、签名是否编码都保持原样
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class StepReferenceRewriter {
+
+    private StepReferenceRewriter() {
+    }
+
+    /**
+     * 类或包改名、移动后改写类、方法、字段引用，内部类和包中的类一起改写
+     *
+     * @param reference 步骤中的引用，形如 com.fr.MyClass#myMethod(int)
+     * @param oldName   原来的类全限定名或包名
+     * @param newName   新的类全限定名或包名
+     * @return 改写后的引用，不受影响时返回 null
+     */
+    public static @Nullable String renameQualifiedName(@NotNull String reference, @NotNull String oldName,
+                                                       @NotNull String newName) {
+        if (!reference.startsWith(oldName)) {
+            return null;
+        }
+        final String rest = reference.substring(oldName.length());
+        return rest.isEmpty() || rest.charAt(0) == '#' || rest.charAt(0) == '.' || rest.charAt(0) == '$'
+                ? newName + rest
+                : null;
+    }
+
+    /**
+     * 方法、字段改名或移动到其他类后改写引用。带签名的引用只改写签名相同的重载
+     *
+     * @param reference    步骤中的引用
+     * @param oldClass     原来所在类的全限定名
+     * @param oldName      原来的成员名
+     * @param oldSignature 原来的方法签名，形如 myMethod(int, String)，字段为 null
+     * @param newClass     现在所在类的全限定名
+     * @param newName      新的成员名
+     * @return 改写后的引用，不受影响时返回 null
+     */
+    public static @Nullable String renameMember(@NotNull String reference, @NotNull String oldClass,
+                                                @NotNull String oldName, @Nullable String oldSignature,
+                                                @NotNull String newClass, @NotNull String newName) {
+        if (!reference.startsWith(oldClass + "#")) {
+            return null;
+        }
+        final String member = reference.substring(oldClass.length() + 1);
+        if (member.contains("(")) {
+            if (oldSignature == null || !oldSignature.equals(URLDecoder.decode(member, StandardCharsets.UTF_8))) {
+                return null;
+            }
+        } else if (!member.equals(oldName)) {
+            return null;
+        }
+        // 成员名中没有需要编码的字符，签名部分按原样保留
+        return newClass + "#" + newName + member.substring(oldName.length());
+    }
+
+    /**
+     * 文件或目录改名、移动后改写路径，目录下的文件一起改写
+     *
+     * @param file    步骤中的路径
+     * @param oldPath 原来的相对路径
+     * @param newPath 新的相对路径
+     * @return 改写后的路径，不受影响时返回 null
+     */
+    public static @Nullable String renamePath(@NotNull String file, @NotNull String oldPath,
+                                              @NotNull String newPath) {
+        if (file.equals(oldPath)) {
+            return newPath;
+        }
+        return file.startsWith(oldPath + "/") ? newPath + file.substring(oldPath.length()) : null;
+    }
+}
@@ -0,0 +1,251 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.psi.search.FilenameIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vito.mycodetour.tours.domain.Step;
+import org.vito.mycodetour.tours.domain.Tour;
+import org.vito.mycodetour.tours.state.StateManager;
+import org.vito.mycodetour.tours.state.ToursState;
+import org.vito.mycodetour.tours.state.TourUpdateNotifier;
+import org.vito.mycodetour.tours.ui.CodeTourNotifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * 类、方法、字段以及文件重命名或移动后改写引用它们的步骤，按工程区分。
+ * 受影响的步骤通过步骤索引按前缀一次找出，在内存中直接改写；
+ * 一次重构中的所有改动在重构结束后合并，所有改动过的 tour 在一个写操作中保存，不逐个确认。
+ * 重构由 StepRefactoringListenerProvider 通知，文件和目录的重命名、移动由 VFS 事件通知
+ * <p>
+ * 所有方法都在 EDT 中调用
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class StepReferenceUpdater {
+
+    private final Project project;
+    /**
+     * 还没有保存的步骤。步骤的 equals 按内容比较，改写后会变，所以按实例保存
+     */
+    private final Set<Step> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+    /**
+     * 还没有保存的改动，同一改动可能被多次通知，新名称以原名称开头时重复改写会出错
+     */
+    private final Set<String> changes = new HashSet<>();
+    private boolean flushScheduled;
+
+    public StepReferenceUpdater(Project project) {
+        this.project = project;
+    }
+
+    public static StepReferenceUpdater getInstance(@NotNull Project project) {
+        return project.getService(StepReferenceUpdater.class);
+    }
+
+    /**
+     * @param prefix 类名、包名或路径
+     * @return 是否有步骤的引用以此开头，没有时不需要监听
+     */
+    public boolean isReferenced(@NotNull String prefix) {
+        return !StateManager.getInstance().getState(project).getStepIndex().findByPrefix(prefix).isEmpty()
+                || pending.stream().anyMatch(step -> step.getFile().startsWith(prefix));
+    }
+
+    /**
+     * 类或包改名、移动
+     *
+     * @param oldName 原来的类全限定名或包名
+     * @param newName 新的类全限定名或包名
+     */
+    public void qualifiedNameChanged(@NotNull String oldName, @NotNull String newName) {
+        if (!oldName.equals(newName)) {
+            rewrite(oldName + '\n' + newName, oldName, false,
+                    file -> StepReferenceRewriter.renameQualifiedName(file, oldName, newName));
+        }
+    }
+
+    /**
+     * 方法、字段改名或移动到其他类
+     *
+     * @param oldClass     原来所在类的全限定名
+     * @param oldName      原来的成员名
+     * @param oldSignature 原来的方法签名，字段为 null
+     * @param newClass     现在所在类的全限定名
+     * @param newName      新的成员名
+     */
+    public void memberChanged(@NotNull String oldClass, @NotNull String oldName, @Nullable String oldSignature,
+                              @NotNull String newClass, @NotNull String newName) {
+        final String change = oldClass + '#' + oldName + '#' + oldSignature + '\n' + newClass + '#' + newName;
+        rewrite(change, oldClass + "#", false, file ->
+                StepReferenceRewriter.renameMember(file, oldClass, oldName, oldSignature, newClass, newName));
+    }
+
+    /**
+     * 文件或目录改名、移动
+     *
+     * @param oldPath 原来相对于源码根目录的路径
+     * @param newPath 新的相对于源码根目录的路径
+     */
+    public void pathChanged(@NotNull String oldPath, @NotNull String newPath) {
+        if (!oldPath.equals(newPath)) {
+            rewrite(oldPath + '\n' + newPath, oldPath, true,
+                    file -> StepReferenceRewriter.renamePath(file, oldPath, newPath));
+        }
+    }
+
+    /**
+     * 文件改名，改写只记录了文件名的步骤。调用前需确认工程中已经没有原名的文件，
+     * 否则这些步骤可能指的是同名的其他文件
+     */
+    private void fileRenamed(@NotNull String oldName, @NotNull String newName) {
+        rewrite(oldName + '\n' + newName, oldName, true, file -> file.equals(oldName) ? newName : null);
+    }
+
+    /**
+     * @param change    改动的标识，用于去重
+     * @param prefix    受影响的引用的前缀
+     * @param lineSteps 改写文件行号步骤还是类、方法、字段步骤
+     * @param rewriter  改写引用，不受影响时返回 null
+     */
+    private void rewrite(String change, String prefix, boolean lineSteps, UnaryOperator<String> rewriter) {
+        if (!changes.add(change)) {
+            return;
+        }
+        // 索引在保存后才重建，本次重构中已经改写过的步骤不在新引用下，需要一起检查
+        final Set<Step> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        candidates.addAll(StateManager.getInstance().getState(project).getStepIndex().findByPrefix(prefix));
+        candidates.addAll(pending);
+
+        for (Step step : candidates) {
+            if (step.getFile() == null || (step.getLine() != null) != lineSteps) {
+                continue;
+            }
+            final String file = rewriter.apply(step.getFile());
+            if (file != null && !file.equals(step.getFile())) {
+                step.setFile(file);
+                pending.add(step);
+            }
+        }
+        if (!flushScheduled) {
+            flushScheduled = true;
+            // 等重构的命令结束后再保存，一次重构只写一次
+            ApplicationManager.getApplication().invokeLater(this::flush, project.getDisposed());
+        }
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        changes.clear();
+        final Set<Tour> tours = new LinkedHashSet<>();
+        for (Step step : pending) {
+            if (step.getOwner() != null) {
+                tours.add(step.getOwner());
+            }
+        }
+        final int steps = pending.size();
+        pending.clear();
+        if (tours.isEmpty()) {
+            return;
+        }
+
+        final ToursState state = StateManager.getInstance().getState(project);
+        state.saveTours(new ArrayList<>(tours));
+        for (Tour tour : tours) {
+            project.getMessageBus().syncPublisher(TourUpdateNotifier.TOPIC).tourUpdated(tour);
+        }
+        CodeTourNotifier.notifyStepDescription(project,
+                String.format("Updated %d step references in %d tours", steps, tours.size()));
+    }
+
+    /**
+     * 文件和目录的重命名、移动，路径按源码根目录计算，与生成步骤时一致
+     */
+    public static final class Listener implements BulkFileListener {
+        private final Project project;
+
+        public Listener(Project project) {
+            this.project = project;
+        }
+
+        @Override
+        public void after(@NotNull List<? extends VFileEvent> events) {
+            final List<Tour> tours = StateManager.getInstance().getState(project).getTours();
+            if (tours == null || tours.isEmpty()) {
+                return;
+            }
+            final StepReferenceUpdater updater = getInstance(project);
+            for (VFileEvent event : events) {
+                if (event instanceof VFilePropertyChangeEvent change && change.isRename()) {
+                    final VirtualFile file = change.getFile();
+                    final String oldName = (String) change.getOldValue();
+                    final String newName = (String) change.getNewValue();
+                    final String parent = relativePath(file.getParent());
+                    if (parent != null) {
+                        updater.pathChanged(join(parent, oldName), join(parent, newName));
+                    }
+                    if (!file.isDirectory() && isInContent(file)) {
+                        // 在事件处理之外、索引可用时再查找同名文件
+                        DumbService.getInstance(project).smartInvokeLater(() -> {
+                            if (!project.isDisposed() && !hasFileNamed(oldName)) {
+                                updater.fileRenamed(oldName, newName);
+                            }
+                        });
+                    }
+                } else if (event instanceof VFileMoveEvent move) {
+                    final String oldParent = relativePath(move.getOldParent());
+                    final String newParent = relativePath(move.getNewParent());
+                    if (oldParent != null && newParent != null) {
+                        final String name = move.getFile().getName();
+                        updater.pathChanged(join(oldParent, name), join(newParent, name));
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return 目录相对于所在源码根目录的路径，不在源码根目录中时返回 null
+         */
+        private @Nullable String relativePath(@Nullable VirtualFile dir) {
+            if (dir == null || project.isDisposed()) {
+                return null;
+            }
+            final VirtualFile sourceRoot = ProjectFileIndex.getInstance(project).getSourceRootForFile(dir);
+            return sourceRoot != null ? VfsUtilCore.getRelativePath(dir, sourceRoot) : null;
+        }
+
+        /**
+         * @return 工程中是否还有这个名称的文件
+         */
+        private boolean hasFileNamed(String name) {
+            return !FilenameIndex.getVirtualFilesByName(name, GlobalSearchScope.projectScope(project)).isEmpty();
+        }
+
+        private boolean isInContent(VirtualFile file) {
+            return !project.isDisposed() && ProjectFileIndex.getInstance(project).isInContent(file);
+        }
+
+        private static String join(String parent, String name) {
+            return parent.isEmpty() ? name : parent + "/" + name;
+        }
+    }
+}
@@ -1,23 +1,13 @@
 package org.vito.mycodetour.tours.service;
 
 import com.intellij.ide.BrowserUtil;
-import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.project.Project;
-import com.intellij.ui.jcef.JBCefBrowser;
-import org.cef.browser.CefBrowser;
-import org.cef.browser.CefFrame;
-import org.cef.handler.CefRequestHandlerAdapter;
-import org.cef.handler.CefResourceHandler;
-import org.cef.handler.CefResourceRequestHandler;
-import org.cef.handler.CefResourceRequestHandlerAdapter;
-import org.cef.misc.BoolRef;
-import org.cef.network.CefRequest;
 import org.vito.mycodetour.tours.domain.Step;
 
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 import java.awt.BorderLayout;
-import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -26,9 +16,7 @@ import java.util.regex.Pattern;
  * @author vito
  * Created on 2025/1/1
  */
-public class StepRendererPane extends JPanel {
-
-    private static final Logger LOG = Logger.getInstance(StepRendererPane.class);
+public class StepRendererPane extends JPanel implements Disposable {
 
     private static final Pattern JAVA_FILE_LINE_PATTERN = java.util.regex.Pattern.compile("([\\w.]+\\.java):(\\d+)");
     private static final Pattern METHOD_PATTERN = Pattern.compile("^([a-z][a-z0-9_$]*\\\\.)*[A-Z][a-zA-Z0-9_$]*$");
@@ -38,6 +26,7 @@ public class StepRendererPane extends JPanel {
 
     private final Step step;
     private final Project project;
+    private PooledBrowser browser;
 
     public StepRendererPane(Step step, Project project) {
         super(true);
@@ -55,40 +44,11 @@ public class StepRendererPane extends JPanel {
     }
 
     private JComponent markdownJCEFHtmlPanelForRender() {
-
-        JBCefBrowser browser = new JBCefBrowser();
-        browser.loadURL("file:///mycodetour/public/index.html");
-        browser.getJBCefClient().addRequestHandler(new CefRequestHandlerAdapter() {
-            @Override
-            public boolean onBeforeBrowse(CefBrowser browser, CefFrame frame, CefRequest request,
-                                          boolean user_gesture, boolean is_redirect) {
-                // 处理跳转
-                return dealWithJCEFLink(request.getURL());
-            }
-
-            @Override
-            public boolean onOpenURLFromTab(CefBrowser browser, CefFrame frame, String target_url, boolean user_gesture) {
-                LOG.warn("Canceling navigation for url:" + target_url + " (user_gesture=" + user_gesture + ")");
-                // 禁止其他页面的跳转
-                return true;
-            }
-
-            @Override
-            public CefResourceRequestHandler getResourceRequestHandler(CefBrowser browser, CefFrame frame, CefRequest request, boolean isNavigation, boolean isDownload, String requestInitiator, BoolRef disableDefaultHandling) {
-                return new CefResourceRequestHandlerAdapter() {
-                    @Override
-                    public CefResourceHandler getResourceHandler(CefBrowser browser, CefFrame frame, CefRequest request) {
-                        String url = request.getURL();
-                        if (url.startsWith("file:///")) {
-                            return new ResourceHandler(project, Map.of("markdownHtml", Utils.renderFullDoc(step)));
-                        }
-                        // 放行非必要处理请求
-                        return null;
-                    }
-                };
-            }
-        }, browser.getCefBrowser());
-
+        // 从池中取已预热的浏览器，直接替换内容
+        browser = BrowserPool.getInstance(project).acquire(BrowserPool.Kind.VIEWER);
+        browser.setLinkHandler(this::dealWithJCEFLink);
+        // 相邻步骤切换时通常已预先渲染好
+        browser.showMarkdownHtml(StepPrefetcher.getInstance(project).render(step));
         return browser.getComponent();
     }
 
@@ -110,4 +70,12 @@ public class StepRendererPane extends JPanel {
         setLayout(new BorderLayout());
         add(markdownJCEFHtmlPanelForRender(), BorderLayout.CENTER);
     }
+
+    @Override
+    public void dispose() {
+        if (browser != null) {
+            BrowserPool.getInstance(project).release(browser);
+            browser = null;
+        }
+    }
 }
@@ -0,0 +1,354 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.notification.NotificationAction;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import icons.Icons;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vito.mycodetour.tours.domain.Step;
+import org.vito.mycodetour.tours.domain.Tour;
+import org.vito.mycodetour.tours.state.StateManager;
+import org.vito.mycodetour.tours.state.StepSelectionNotifier;
+import org.vito.mycodetour.tours.state.StepValidationNotifier;
+import org.vito.mycodetour.tours.state.TourUpdateNotifier;
+import org.vito.mycodetour.tours.state.Validator;
+
+import javax.swing.JLabel;
+import javax.swing.SwingConstants;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 后台校验步骤引用的文件、行号以及类、方法、字段，按工程区分。
+ * 在智能模式下的非阻塞读操作中执行，同一引用在一次校验中只查找一次；
+ * 每个引用的结果连同目标文件的修改计数一起缓存，类、方法引用的目标文件是类所在的文件，
+ * 之后 tour、文件或代码变化时只重新校验目标文件变化了的引用；只有找不到目标的引用依赖文件结构，
+ * 在文件增删、移动后重新校验，找不到类的引用另外在 Java 结构变化后重新校验。
+ * 结果显示在 tour 树中，新出现的问题通过通知提示，可以从通知中打开问题列表
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class StepValidationService implements Disposable {
+
+    private static final int VALIDATION_DELAY_MS = 1500;
+
+    private final Project project;
+    private final ModificationTracker structureTracker;
+    private final ModificationTracker psiTracker;
+    private final Alarm alarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+    /**
+     * 引用 -> 校验结果
+     */
+    private final Map<String, Result> results = new ConcurrentHashMap<>();
+    /**
+     * 最近一次校验中有问题的步骤 -> 问题描述
+     */
+    private volatile Map<Step, String> problems = Collections.emptyMap();
+
+    public StepValidationService(Project project) {
+        this.project = project;
+        ProjectRootManager rootManager = ProjectRootManager.getInstance(project);
+        this.structureTracker = () -> VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS.getModificationCount()
+                + rootManager.getModificationCount();
+        this.psiTracker = PsiModificationTracker.getInstance(project).forLanguage(JavaLanguage.INSTANCE);
+    }
+
+    public static StepValidationService getInstance(@NotNull Project project) {
+        return project.getService(StepValidationService.class);
+    }
+
+    /**
+     * @return 最近一次校验中有问题的步骤 -> 问题描述，按 tour 中的顺序
+     */
+    public @NotNull Map<Step, String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * 稍后在后台校验，短时间内多次调用只执行一次
+     */
+    public void validateLater() {
+        if (project.isDisposed() || alarm.isDisposed()) {
+            return;
+        }
+        alarm.cancelAllRequests();
+        alarm.addRequest(this::validate, VALIDATION_DELAY_MS);
+    }
+
+    private void validate() {
+        ReadAction.nonBlocking(this::validateAll)
+                .inSmartMode(project)
+                .coalesceBy(this)
+                .expireWith(this)
+                .finishOnUiThread(ModalityState.defaultModalityState(), this::publish)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    private Map<Step, String> validateAll() {
+        final List<Tour> tours = StateManager.getInstance().getState(project).getTours();
+        final Map<Step, String> found = new LinkedHashMap<>();
+        if (tours == null) {
+            return found;
+        }
+        final long structureStamp = structureTracker.getModificationCount();
+        final long psiStamp = psiTracker.getModificationCount();
+        // 同一次校验中相同的引用只校验一次
+        final Map<String, Result> checked = new HashMap<>();
+        for (Tour tour : List.copyOf(tours)) {
+            if (tour.getSteps() == null || Validator.isDemo(tour)) {
+                continue;
+            }
+            for (Step step : List.copyOf(tour.getSteps())) {
+                ProgressManager.checkCanceled();
+                final String reference = step.reference();
+                if (reference == null || reference.isEmpty()) {
+                    continue;
+                }
+                final Result result = checked.computeIfAbsent(reference, r -> {
+                    final Result cached = results.get(r);
+                    if (cached != null && cached.isUpToDate(structureStamp, psiStamp)) {
+                        return cached;
+                    }
+                    final Result fresh = step.getLine() != null
+                            ? validateFileLine(step.getFile(), step.getLine(), structureStamp)
+                            : validateReference(step.getFile(), structureStamp, psiStamp);
+                    results.put(r, fresh);
+                    return fresh;
+                });
+                if (result.problem != null) {
+                    found.put(step, result.problem);
+                }
+            }
+        }
+        // 已经不被任何步骤引用的结果不再保留
+        results.keySet().retainAll(checked.keySet());
+        return found;
+    }
+
+    private Result validateFileLine(String path, int line, long structureStamp) {
+        final List<VirtualFile> files = NavigationCache.getInstance(project).findFiles(path);
+        if (files.isEmpty()) {
+            // 文件可能在任何地方出现，找不到时在文件结构变化后重新查找
+            return Result.ofUnresolved(String.format("File '%s' not found", path), structureStamp, -1);
+        }
+        int maxLines = 0;
+        for (VirtualFile file : files) {
+            final Document document = FileDocumentManager.getInstance().getDocument(file);
+            if (document != null) {
+                maxLines = Math.max(maxLines, document.getLineCount());
+            }
+        }
+        final String problem = line < 1 || line > maxLines
+                ? String.format("Line %d is out of range, '%s' has %d lines", line, path, maxLines)
+                : null;
+        return Result.ofFile(problem, files);
+    }
+
+    private Result validateReference(String reference, long structureStamp, long psiStamp) {
+        // 形如 MyClass#myMethod 或 com.fr.MyClass
+        final String[] parts = reference.split("#");
+        final NavigationCache cache = NavigationCache.getInstance(project);
+        final PsiElement element = parts.length == 2 ? cache.findMember(parts[0], parts[1]) : cache.findClass(parts[0]);
+        final String problem;
+        if (element == null) {
+            problem = String.format("Class '%s' not found", parts[0]);
+        } else if (parts.length == 2 && element instanceof PsiClass) {
+            // 成员不存在时返回的是类本身
+            problem = String.format("Member '%s' not found in '%s'", parts[1], parts[0]);
+        } else {
+            problem = null;
+        }
+        if (element == null) {
+            // 类可能出现在任何文件中，找不到时在 Java 结构变化后重新查找
+            return Result.ofUnresolved(problem, structureStamp, psiStamp);
+        }
+        final PsiFile psiFile = element.getContainingFile();
+        final VirtualFile file = psiFile != null ? psiFile.getVirtualFile() : null;
+        return file != null
+                ? Result.ofFile(problem, List.of(file))
+                : Result.ofUnresolved(problem, structureStamp, psiStamp);
+    }
+
+    private void publish(Map<Step, String> found) {
+        final Map<Step, String> previous = problems;
+        problems = Collections.unmodifiableMap(found);
+        project.getMessageBus().syncPublisher(StepValidationNotifier.TOPIC).stepsValidated();
+
+        // 只在出现新的问题时提示，已经提示过的问题不重复提示
+        final Set<String> notified = new HashSet<>();
+        previous.keySet().forEach(step -> notified.add(step.reference()));
+        if (found.keySet().stream().anyMatch(step -> !notified.contains(step.reference()))) {
+            notifyProblems(found.size());
+        }
+    }
+
+    private void notifyProblems(int count) {
+        NotificationGroupManager.getInstance()
+                .getNotificationGroup("CodeTour-Notification")
+                .createNotification(String.format("%s invalid tour steps found", count), NotificationType.WARNING)
+                .setIcon(Icons.TOUR_16)
+                .addAction(NotificationAction.createSimple("Show invalid steps", this::showProblems))
+                .notify(project);
+    }
+
+    /**
+     * 弹出有问题的步骤列表，选中后在 tour 中定位到该步骤
+     */
+    public void showProblems() {
+        final Map<Step, String> current = problems;
+        if (current.isEmpty()) {
+            return;
+        }
+        final List<Step> steps = new ArrayList<>(current.keySet());
+        JBPopupFactory.getInstance()
+                .createPopupChooserBuilder(steps)
+                .setTitle("Invalid Tour Steps")
+                .setRenderer((list, step, index, selected, focused) -> {
+                    final String owner = step.getOwner() != null ? step.getOwner().getTitle() + " › " : "";
+                    final JLabel label = new JLabel(owner + step.getTitle() + ": " + current.get(step),
+                            Icons.STEP_12, SwingConstants.LEFT);
+                    if (selected) {
+                        label.setOpaque(true);
+                        label.setBackground(list.getSelectionBackground());
+                        label.setForeground(list.getSelectionForeground());
+                    }
+                    return label;
+                })
+                .setItemChosenCallback(step ->
+                        project.getMessageBus().syncPublisher(StepSelectionNotifier.TOPIC).selectStep(step))
+                .createPopup()
+                .showCenteredInCurrentWindow(project);
+    }
+
+    @Override
+    public void dispose() {
+        results.clear();
+        problems = Collections.emptyMap();
+    }
+
+    /**
+     * 一个引用的校验结果以及校验时的修改计数
+     */
+    private static final class Result {
+        private final String problem;
+        private final long structureStamp;
+        private final long psiStamp;
+        private final List<VirtualFile> files;
+        private final long filesStamp;
+
+        private Result(String problem, long structureStamp, long psiStamp, List<VirtualFile> files) {
+            this.problem = problem;
+            this.structureStamp = structureStamp;
+            this.psiStamp = psiStamp;
+            this.files = files;
+            this.filesStamp = stampOf(files);
+        }
+
+        /**
+         * 找到了目标文件的结果，只依赖目标文件
+         */
+        static Result ofFile(@Nullable String problem, List<VirtualFile> files) {
+            return new Result(problem, -1, -1, files);
+        }
+
+        /**
+         * 找不到目标的结果，依赖文件结构，psiStamp 为 -1 时不依赖 Java 结构
+         */
+        static Result ofUnresolved(@Nullable String problem, long structureStamp, long psiStamp) {
+            return new Result(problem, structureStamp, psiStamp, List.of());
+        }
+
+        /**
+         * 找到了目标的引用在目标文件没变时有效：文件引用的目标文件是引用的文件，
+         * 类、方法引用的目标文件是类所在的文件，改动、增删其他文件不影响。
+         * 找不到目标的引用要求文件结构没变，找不到类的引用另外要求 Java 结构没变
+         */
+        boolean isUpToDate(long currentStructureStamp, long currentPsiStamp) {
+            return (structureStamp < 0 || structureStamp == currentStructureStamp)
+                    && (psiStamp < 0 || psiStamp == currentPsiStamp)
+                    && filesStamp == stampOf(files);
+        }
+
+        /**
+         * 目标文件的路径和修改计数，文件被删除、移动或修改后变化
+         */
+        private static long stampOf(List<VirtualFile> files) {
+            long stamp = 0;
+            for (VirtualFile file : files) {
+                if (!file.isValid()) {
+                    return Long.MIN_VALUE;
+                }
+                final Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+                stamp = stamp * 31 + file.getPath().hashCode();
+                stamp = stamp * 31 + (document != null ? document.getModificationStamp() : file.getModificationStamp());
+            }
+            return stamp;
+        }
+    }
+
+    /**
+     * tour 或文件变化时重新校验，在 plugin.xml 中注册
+     */
+    public static final class Listener implements TourUpdateNotifier, BulkFileListener,
+            PsiModificationTracker.Listener {
+        private final Project project;
+
+        public Listener(Project project) {
+            this.project = project;
+        }
+
+        @Override
+        public void tourUpdated(Tour tour) {
+            getInstance(project).validateLater();
+        }
+
+        @Override
+        public void after(@NotNull List<? extends VFileEvent> events) {
+            if (hasTours()) {
+                getInstance(project).validateLater();
+            }
+        }
+
+        @Override
+        public void modificationCountChanged() {
+            if (hasTours()) {
+                getInstance(project).validateLater();
+            }
+        }
+
+        private boolean hasTours() {
+            final List<Tour> tours = StateManager.getInstance().getState(project).getTours();
+            return tours != null && !tours.isEmpty();
+        }
+    }
+}
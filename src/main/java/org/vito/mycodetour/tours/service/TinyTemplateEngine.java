@@ -1,11 +1,16 @@
 package org.vito.mycodetour.tours.service;
 
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 微型模板引擎
+ * <p>
+ * 模板按路径只解析一次，拆成字面量和占位符片段后缓存，渲染时直接写入字节缓冲
  *
  * @author vito
  * @since 11.0
@@ -13,8 +18,7 @@ import java.util.regex.*;
  */
 public class TinyTemplateEngine {
 
-    // 正则匹配 ${...} 格式的占位符（非贪婪模式）
-    private static final Pattern PATTERN = Pattern.compile("\\$\\{(.*?)\\}");
+    private static final Map<String, CompiledTemplate> CACHE = new ConcurrentHashMap<>();
 
     /**
      * 模板渲染方法
@@ -24,18 +28,7 @@ public class TinyTemplateEngine {
      * @return 替换后的字符串，例如 "Hello, Alice!"
      */
     public static String renderHtml(String template, Map<String, String> values) {
-        Matcher matcher = PATTERN.matcher(template);
-        StringBuilder sb = new StringBuilder();
-
-        while (matcher.find()) {
-            String key = matcher.group(1); // 提取 ${} 内部的变量名
-            // 从 Map 中获取值，若不存在则替换为空字符串
-            String replacement = values.getOrDefault(key, "");
-            // 处理正则特殊字符（如 $、\ 等）
-            matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
-        }
-        matcher.appendTail(sb);
-        return sb.toString();
+        return compile(template).renderString(values);
     }
 
     /**
@@ -46,8 +39,135 @@ public class TinyTemplateEngine {
      * @return 替换后的字符串，例如 "Hello, Alice!"
      */
     public static String render(String template, Map<String, String> values) {
-        String html = Utils.readFile(template);
-        return TinyTemplateEngine.renderHtml(html, values);
+        return getTemplate(template).renderString(values);
+    }
+
+    /**
+     * 模板渲染方法，直接输出UTF-8字节
+     *
+     * @param template 模板路径
+     * @param values   键值对
+     * @return 替换后的UTF-8字节
+     */
+    public static byte[] renderBytes(String template, Map<String, String> values) {
+        return getTemplate(template).render(values);
+    }
+
+    /**
+     * 获取已编译的模板，首次访问时从classpath读取并解析
+     *
+     * @param template 模板路径
+     * @return 编译后的模板
+     */
+    public static CompiledTemplate getTemplate(String template) {
+        CompiledTemplate cached = CACHE.get(template);
+        if (cached != null) {
+            return cached;
+        }
+        String content = Utils.readFile(template);
+        CompiledTemplate compiled = compile(content);
+        // 读取失败时不缓存，下次重试
+        return content.isEmpty() ? compiled : CACHE.computeIfAbsent(template, key -> compiled);
+    }
+
+    /**
+     * 将模板解析为字面量和占位符片段，占位符为 ${key}，key 中不能包含换行
+     *
+     * @param template 模板字符串
+     * @return 编译后的模板
+     */
+    public static CompiledTemplate compile(String template) {
+        List<byte[]> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int length = template.length();
+        int i = 0;
+        while (i < length) {
+            char c = template.charAt(i);
+            if (c == '$' && i + 1 < length && template.charAt(i + 1) == '{') {
+                int end = findPlaceholderEnd(template, i + 2);
+                if (end >= 0) {
+                    literals.add(literal.toString().getBytes(StandardCharsets.UTF_8));
+                    keys.add(template.substring(i + 2, end));
+                    literal.setLength(0);
+                    i = end + 1;
+                    continue;
+                }
+            }
+            literal.append(c);
+            i++;
+        }
+        literals.add(literal.toString().getBytes(StandardCharsets.UTF_8));
+        return new CompiledTemplate(literals, keys);
+    }
+
+    private static int findPlaceholderEnd(String template, int from) {
+        for (int i = from; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c == '}') {
+                return i;
+            }
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 编译后的模板，字面量与占位符交替排列，字面量始终比占位符多一个
+     */
+    public static final class CompiledTemplate {
+
+        private final byte[][] literals;
+        private final String[] keys;
+        private final int literalLength;
+
+        private CompiledTemplate(List<byte[]> literals, List<String> keys) {
+            this.literals = literals.toArray(new byte[0][]);
+            this.keys = keys.toArray(new String[0]);
+            int total = 0;
+            for (byte[] literal : this.literals) {
+                total += literal.length;
+            }
+            this.literalLength = total;
+        }
+
+        public List<String> getKeys() {
+            return List.of(keys);
+        }
+
+        /**
+         * 渲染为UTF-8字节，未提供的占位符替换为空字符串
+         *
+         * @param values 键值对
+         * @return UTF-8字节
+         */
+        public byte[] render(Map<String, String> values) {
+            byte[][] encoded = new byte[keys.length][];
+            int total = literalLength;
+            for (int i = 0; i < keys.length; i++) {
+                encoded[i] = values.getOrDefault(keys[i], "").getBytes(StandardCharsets.UTF_8);
+                total += encoded[i].length;
+            }
+            byte[] out = new byte[total];
+            int pos = 0;
+            for (int i = 0; i < keys.length; i++) {
+                pos = write(literals[i], out, pos);
+                pos = write(encoded[i], out, pos);
+            }
+            write(literals[keys.length], out, pos);
+            return out;
+        }
+
+        private static int write(byte[] src, byte[] dest, int pos) {
+            System.arraycopy(src, 0, dest, pos, src.length);
+            return pos + src.length;
+        }
+
+        public String renderString(Map<String, String> values) {
+            return new String(render(values), StandardCharsets.UTF_8);
+        }
     }
 
 }
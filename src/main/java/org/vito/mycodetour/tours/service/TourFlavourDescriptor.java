@@ -0,0 +1,156 @@
+package org.vito.mycodetour.tours.service;
+
+import org.intellij.markdown.IElementType;
+import org.intellij.markdown.MarkdownElementTypes;
+import org.intellij.markdown.MarkdownTokenTypes;
+import org.intellij.markdown.ast.ASTNode;
+import org.intellij.markdown.ast.ASTUtilKt;
+import org.intellij.markdown.flavours.gfm.GFMFlavourDescriptor;
+import org.intellij.markdown.html.GeneratingProvider;
+import org.intellij.markdown.html.HtmlGenerator;
+import org.intellij.markdown.parser.LinkMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 在 GFM 的基础上，将 mermaid 和 PlantUML 代码块直接生成为图表容器，
+ * 不再对生成的 html 做正则替换；mermaid 有缓存的渲染结果时直接输出 SVG
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public class TourFlavourDescriptor extends GFMFlavourDescriptor {
+
+    private static final String PLANTUML = "plantuml";
+    private static final String MERMAID = "mermaid";
+    /**
+     * 与前端 mermaid.initialize 的主题保持一致，主题参与缓存 key 的计算
+     */
+    private static final String MERMAID_THEME = "dark";
+    private static final Map<String, String> DIAGRAM_CLASSES = Map.of(
+            "mermaid", MERMAID,
+            "startuml", PLANTUML);
+
+    private final Function<String, String> svgLookup;
+
+    public TourFlavourDescriptor() {
+        this(key -> null);
+    }
+
+    /**
+     * @param svgLookup 按 key 查找已渲染的图表 SVG，没有时返回 null
+     */
+    public TourFlavourDescriptor(@NotNull Function<String, String> svgLookup) {
+        this.svgLookup = svgLookup;
+    }
+
+    @Override
+    public @NotNull Map<IElementType, GeneratingProvider> createHtmlGeneratingProviders(@NotNull LinkMap linkMap,
+                                                                                        @Nullable URI baseURI) {
+        Map<IElementType, GeneratingProvider> providers = new HashMap<>(super.createHtmlGeneratingProviders(linkMap, baseURI));
+        providers.put(MarkdownElementTypes.CODE_FENCE,
+                new DiagramCodeFenceProvider(providers.get(MarkdownElementTypes.CODE_FENCE), svgLookup));
+        return providers;
+    }
+
+    /**
+     * 图表代码块输出为 &lt;div class='mermaid|plantuml'&gt;，其他代码块交给默认实现
+     */
+    private static class DiagramCodeFenceProvider implements GeneratingProvider {
+
+        private final GeneratingProvider delegate;
+        private final Function<String, String> svgLookup;
+
+        private DiagramCodeFenceProvider(GeneratingProvider delegate, Function<String, String> svgLookup) {
+            this.delegate = delegate;
+            this.svgLookup = svgLookup;
+        }
+
+        @Override
+        public void processNode(@NotNull HtmlGenerator.HtmlGeneratingVisitor visitor, @NotNull String text,
+                                @NotNull ASTNode node) {
+            String cssClass = DIAGRAM_CLASSES.get(language(text, node));
+            if (cssClass == null) {
+                delegate.processNode(visitor, text, node);
+                return;
+            }
+
+            int indentBefore = indent(ASTUtilKt.getTextInNode(node, text));
+            List<ASTNode> children = node.getChildren();
+            if (!children.isEmpty() && children.get(children.size() - 1).getType() == MarkdownTokenTypes.CODE_FENCE_END) {
+                children = children.subList(0, children.size() - 1);
+            }
+            StringBuilder content = new StringBuilder();
+            StringBuilder source = new StringBuilder();
+            boolean inContent = false;
+            boolean lastChildWasContent = false;
+            for (ASTNode child : children) {
+                IElementType type = child.getType();
+                if (inContent && (type == MarkdownTokenTypes.CODE_FENCE_CONTENT || type == MarkdownTokenTypes.EOL)) {
+                    content.append(HtmlGenerator.Companion.trimIndents(
+                            HtmlGenerator.Companion.leafText(text, child, false), indentBefore));
+                    source.append(HtmlGenerator.Companion.trimIndents(
+                            ASTUtilKt.getTextInNode(child, text), indentBefore));
+                    lastChildWasContent = type == MarkdownTokenTypes.CODE_FENCE_CONTENT;
+                } else if (!inContent && type == MarkdownTokenTypes.EOL) {
+                    inContent = true;
+                }
+            }
+            if (lastChildWasContent) {
+                content.append('\n');
+                source.append('\n');
+            }
+
+            String html = stripLeading(content);
+            if (PLANTUML.equals(cssClass)) {
+                // 优先请求本地渲染，失败时前端再回退到远程服务
+                String key = PlantUmlRenderer.register(stripLeading(source));
+                visitor.consumeHtml("<div class='plantuml' data-src='" + PlantUmlRenderer.URL_PREFIX + key + ".svg'>"
+                        + html + "</div>");
+            } else {
+                // 已有渲染结果时直接内联 SVG，前端无需加载 mermaid
+                String key = DiagramSvgCache.keyOf(MERMAID,
+                        (MERMAID_THEME + "\n" + stripLeading(source)).getBytes(StandardCharsets.UTF_8));
+                String svg = svgLookup.apply(key);
+                if (svg != null) {
+                    visitor.consumeHtml("<div class='mermaid' data-key='" + key + "' data-cached='true'>" + svg + "</div>");
+                } else {
+                    visitor.consumeHtml("<div class='mermaid' data-key='" + key + "'>" + html + "</div>");
+                }
+            }
+        }
+
+        private static String stripLeading(CharSequence content) {
+            int start = 0;
+            while (start < content.length() && MarkdownPreprocessor.isWhitespace(content.charAt(start))) {
+                start++;
+            }
+            return content.subSequence(start, content.length()).toString();
+        }
+
+        private static @Nullable String language(String text, ASTNode node) {
+            ASTNode lang = ASTUtilKt.findChildOfType(node, MarkdownTokenTypes.FENCE_LANG);
+            if (lang == null) {
+                return null;
+            }
+            String value = ASTUtilKt.getTextInNode(lang, text).toString().trim();
+            int space = value.indexOf(' ');
+            return space > 0 ? value.substring(0, space) : value;
+        }
+
+        private static int indent(CharSequence text) {
+            int indent = 0;
+            while (indent < 10 && indent < text.length() && text.charAt(indent) == ' ') {
+                indent++;
+            }
+            return indent;
+        }
+    }
+}
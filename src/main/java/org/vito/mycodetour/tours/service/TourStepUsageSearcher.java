@@ -0,0 +1,99 @@
+package org.vito.mycodetour.tours.service;
+
+import com.intellij.find.findUsages.CustomUsageSearcher;
+import com.intellij.find.findUsages.FindUsagesOptions;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.usages.Usage;
+import com.intellij.util.Processor;
+import org.jetbrains.annotations.NotNull;
+import org.vito.mycodetour.tours.domain.Step;
+import org.vito.mycodetour.tours.state.StateManager;
+import org.vito.mycodetour.tours.state.StepIndex;
+import org.vito.mycodetour.tours.ui.TourStepUsage;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 在查找用法中列出引用类、方法、字段的步骤。只查步骤索引，不遍历 tour：
+ * 按 PsiHelper.getReference 得到的引用精确查找，方法还按不带签名的引用查找；
+ * 文件行号步骤按所在文件查找，再按行号落在元素范围内过滤
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public class TourStepUsageSearcher extends CustomUsageSearcher {
+
+    @Override
+    public void processElementUsages(@NotNull PsiElement element, @NotNull Processor<? super Usage> processor,
+                                     @NotNull FindUsagesOptions options) {
+        final Set<Step> steps = ReadAction.compute(() -> element.isValid() ? findSteps(element) : Set.of());
+        final Project project = element.getProject();
+        for (Step step : steps) {
+            if (!processor.process(new TourStepUsage(project, step))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 需要在读操作中调用
+     *
+     * @param element 类、方法或字段
+     * @return 引用该元素或指向其代码范围内某一行的步骤
+     */
+    public static @NotNull Set<Step> findSteps(@NotNull PsiElement element) {
+        final String reference = PsiHelper.getReference(element);
+        if (reference == null) {
+            return Set.of();
+        }
+        final Project project = element.getProject();
+        final StepIndex index = StateManager.getInstance().getState(project).getStepIndex();
+        // 步骤的 equals 按内容比较，内容相同的不同步骤都要列出
+        final Set<Step> steps = Collections.newSetFromMap(new IdentityHashMap<>());
+        steps.addAll(index.findAll(reference));
+        if (element instanceof PsiMethod method && reference.contains("#")) {
+            steps.addAll(index.findAll(reference.substring(0, reference.indexOf('#') + 1) + method.getName()));
+        }
+
+        final PsiFile psiFile = element.getContainingFile();
+        final VirtualFile file = psiFile != null ? psiFile.getVirtualFile() : null;
+        final Document document = file != null ? FileDocumentManager.getInstance().getDocument(file) : null;
+        final TextRange range = element.getTextRange();
+        if (document == null || range == null) {
+            return steps;
+        }
+        final int startLine = document.getLineNumber(range.getStartOffset()) + 1;
+        final int endLine = document.getLineNumber(range.getEndOffset()) + 1;
+        final VirtualFile sourceRoot = ProjectFileIndex.getInstance(project).getSourceRootForFile(file);
+        final String relativePath = sourceRoot != null ? VfsUtilCore.getRelativePath(file, sourceRoot) : null;
+        // 文件在源码根目录下时相对路径就是文件名
+        final List<String> keys = relativePath == null || relativePath.equals(file.getName())
+                ? List.of(file.getName())
+                : List.of(relativePath, file.getName());
+        for (String key : keys) {
+            for (Step step : index.findAll(key)) {
+                if (step.getLine() == null) {
+                    continue;
+                }
+                final int line = StepReanchorer.currentLine(step, document);
+                if (line >= startLine && line <= endLine) {
+                    steps.add(step);
+                }
+            }
+        }
+        return steps;
+    }
+}
@@ -3,38 +3,19 @@ package org.vito.mycodetour.tours.service;
 import com.intellij.lang.documentation.DocumentationMarkup;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.psi.PsiNameHelper;
-import com.intellij.ui.jcef.JBCefBrowser;
 import org.apache.commons.lang3.StringUtils;
-import org.cef.browser.CefBrowser;
-import org.cef.browser.CefFrame;
-import org.cef.handler.CefRequestHandlerAdapter;
-import org.cef.handler.CefResourceHandler;
-import org.cef.handler.CefResourceRequestHandler;
-import org.cef.handler.CefResourceRequestHandlerAdapter;
-import org.cef.misc.BoolRef;
-import org.cef.network.CefRequest;
-import org.intellij.markdown.ast.ASTNode;
-import org.intellij.markdown.flavours.MarkdownFlavourDescriptor;
-import org.intellij.markdown.flavours.gfm.GFMFlavourDescriptor;
-import org.intellij.markdown.html.HtmlGenerator;
-import org.intellij.markdown.parser.MarkdownParser;
 import org.jetbrains.annotations.NotNull;
 import org.vito.mycodetour.tours.domain.Props;
 import org.vito.mycodetour.tours.domain.Step;
 import org.vito.mycodetour.tours.domain.Tour;
 
 import java.io.BufferedReader;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
-import java.util.regex.Pattern;
 
 /**
  * 一些暂时的工具
@@ -46,49 +27,6 @@ public class Utils {
 
     private static final Logger LOG = Logger.getInstance(Utils.class);
 
-    public static final Pattern WIKI_LINK = Pattern.compile("\\[\\[([^]]+)]]");
-    public static final Pattern EXCALIDRAW_LINK = Pattern.compile("!\\[\\[([^]]+)\\.excalidraw]]");
-    public static final Pattern IMAGE_LINK = Pattern.compile("!\\[\\[([^]]+)]]");
-
-    /**
-     * Custom TagRenderer for md to html, as for some strange reason there is no default implementation now
-     * in the related Jetbrains library
-     */
-    private static final HtmlGenerator.TagRenderer TAG_RENDERER = new HtmlGenerator.TagRenderer() {
-        @NotNull
-        @Override
-        public CharSequence printHtml(@NotNull CharSequence charSequence) {
-            return charSequence;
-        }
-
-        @NotNull
-        @Override
-        public CharSequence openTag(@NotNull ASTNode astNode, @NotNull CharSequence tagName,
-                                    @NotNull CharSequence[] attributes, boolean autoClose) {
-            StringBuilder builder = new StringBuilder();
-            builder.append("<").append(tagName);
-            for (CharSequence attribute : attributes) {
-                if (attribute == null || attribute.isEmpty()) {
-                    continue;
-                }
-                builder.append(" ").append(attribute);
-            }
-            if (autoClose) {
-                builder.append(" />");
-            } else {
-                builder.append(">");
-            }
-
-            return builder.toString();
-        }
-
-        @NotNull
-        @Override
-        public CharSequence closeTag(@NotNull CharSequence charSequence) {
-            return String.format("</%s>", charSequence);
-        }
-    };
-
     /**
      * Removes whitespaces and transforms the given title in camelCase
      * e.g. Basket Items Issue Reproduce --> basketItemsIssueReproduce.tour
@@ -130,7 +68,35 @@ public class Utils {
         }
     }
 
-    public static String renderFullDoc(Step step) {
+    /**
+     * 渲染步骤的完整内容，资源相对于 tour 所在模块的根目录查找，找不到时使用项目根目录
+     *
+     * @param project 步骤所在项目
+     * @param step    步骤
+     * @return html内容
+     */
+    public static String renderFullDoc(@NotNull Project project, Step step) {
+        return renderFullDoc(step, baseDirOf(project, step.getOwner()));
+    }
+
+    /**
+     * 渲染步骤的完整内容
+     *
+     * @param step    步骤
+     * @param baseDir 资源查找的起始目录
+     * @return html内容
+     */
+    public static String renderFullDoc(Step step, @NotNull String baseDir) {
+        return mdToHtml(fullDocMarkdown(step), baseDir);
+    }
+
+    /**
+     * 步骤完整内容的markdown，包含标题和引用
+     *
+     * @param step 步骤
+     * @return markdown内容
+     */
+    public static String fullDocMarkdown(Step step) {
         StringBuilder sb = new StringBuilder();
         sb.append(DocumentationMarkup.DEFINITION_START);
         sb.append(getStepMetaLabel(step));
@@ -138,19 +104,26 @@ public class Utils {
         sb.append(DocumentationMarkup.CONTENT_START);
         if (step.getDescription() != null) {
             // For formatting purposes, add <br/> tag when there are 2 consecutive empty lines
-            String description = step.getDescription().replaceAll("\\n\\n\\n", "\n\n<br/>\n\n");
+            String description = step.getDescription().replace("\n\n\n", "\n\n<br/>\n\n");
             sb.append("\n\n").append(description).append("\n");
         }
         sb.append(DocumentationMarkup.CONTENT_END);
         pageFooterIfNeed(step.reference(), sb);
-        Tour owner = step.getOwner();
-        if (owner == null) {
-            return mdToHtml(sb.toString());
+        return sb.toString();
+    }
+
+    /**
+     * @param project 项目
+     * @param owner   步骤所属 tour
+     * @return tour 所在模块的根目录，找不到时返回项目根目录
+     */
+    public static @NotNull String baseDirOf(@NotNull Project project, Tour owner) {
+        VirtualFile moduleRootDirectory = owner != null ? owner.getModuleRootDirectory() : null;
+        if (moduleRootDirectory != null) {
+            return moduleRootDirectory.getPath();
         }
-        VirtualFile moduleRootDirectory = owner.getModuleRootDirectory();
-        return moduleRootDirectory != null
-                ? mdToHtml(sb.toString(), moduleRootDirectory.getPath())
-                : mdToHtml(sb.toString());
+        String basePath = project.getBasePath();
+        return basePath != null ? basePath : "";
     }
 
     private static void pageFooterIfNeed(String file, StringBuilder sb) {
@@ -162,18 +135,6 @@ public class Utils {
         }
     }
 
-    /**
-     * 支持指定baseDir的mdToHtml
-     *
-     * @param markdown markdown内容
-     * @return html内容
-     */
-    public static String mdToHtml(String markdown) {
-        Project[] openProjects = ProjectManager.getInstance().getOpenProjects();
-        String baseDir = openProjects.length > 0 ? openProjects[0].getBasePath() : "";
-        return mdToHtml(markdown, baseDir);
-    }
-
     /**
      * 支持指定baseDir的mdToHtml
      *
@@ -182,80 +143,7 @@ public class Utils {
      * @return html内容
      */
     public static String mdToHtml(String markdown, String baseDir) {
-        String processedMarkdown = markdown;
-        // 预处理 ![[]] 语法
-        if (processedMarkdown.contains("![[")) {
-            // 处理excalidraw文件引用
-            processedMarkdown = EXCALIDRAW_LINK.matcher(processedMarkdown).replaceAll(matchResult -> {
-                String group = matchResult.group(1);
-                VirtualFile resourceFile = VirtualFileManager.getInstance().findFileByNioPath(
-                        new File(baseDir + "/" + group + ".excalidraw").toPath());
-                if (resourceFile == null) {
-                    return "<div class='excalidraw' data-src='$1.excalidraw'></div>";
-                }
-                try {
-                    String s = readFile(resourceFile.getInputStream());
-                    return String.format("<div class='excalidraw' data-src='%s' data-source-file='%s'></div>",
-                            escapeAttr(s),
-                            escapeAttr(resourceFile.getPath()));
-                } catch (IOException e) {
-                    LOG.error(e);
-                    return "<div class='excalidraw' data-src='$1.excalidraw'></div>";
-                }
-            });
-            // fallback 到图片处理
-            processedMarkdown = IMAGE_LINK.matcher(processedMarkdown).replaceAll(matchResult -> {
-                String group = matchResult.group(1);
-                VirtualFile resourceFile = VirtualFileManager.getInstance().findFileByNioPath(
-                        new File(baseDir + "/" + group).toPath());
-                if (resourceFile == null) {
-                    return "<img src='file:///$1' alt='$1'>";
-                }
-                return String.format("<img src='file://%s' alt='%s' data-origin-src='%s'/>",
-                        escapeAttr(resourceFile.getPath()),
-                        group, group);
-            });
-        }
-        // 预处理 [[xx]] 语法
-        if (processedMarkdown.contains("[[")) {
-            processedMarkdown = WIKI_LINK.matcher(processedMarkdown).replaceAll(matchResult -> {
-                String group = matchResult.group(1);
-                if (group.contains(".tour")) {
-                    return group.replaceAll("([^#:]+)\\.tour#([^]]+)", "<a href=\"tour://$1.tour#$2\">$1.tour#$2</a>");
-                }
-                return "<a href=\"navigate://$1\">$1</a>";
-            });
-        }
-
-        // 预处理 PlantUML 代码块，先把@startuml转为代码块
-        if (processedMarkdown.contains("@startuml")) {
-            processedMarkdown = processedMarkdown.replaceAll(
-                    "@startuml\\s*([\\s\\S]*?)@enduml",
-                    "```startuml\n$1```"
-            );
-        }
-
-        final MarkdownFlavourDescriptor flavour = new GFMFlavourDescriptor();
-        final ASTNode parsedTree = new MarkdownParser(flavour).buildMarkdownTreeFromString(processedMarkdown);
-        String html = new HtmlGenerator(processedMarkdown, parsedTree, flavour, false).generateHtml(TAG_RENDERER);
-
-        // 预处理 PlantUML 代码块
-        if (html.contains("class=\"language-startuml\"")) {
-            html = html.replaceAll(
-                    "<pre><code class=\"language-startuml\">\\s*([\\s\\S]*?)</code></pre>",
-                    "<div class='plantuml'>$1</div>"
-            );
-        }
-
-        // 预处理Mermaid代码块
-        if (html.contains("class=\"language-mermaid\"")) {
-            html = html.replaceAll(
-                    "<pre><code class=\"language-mermaid\">\\s*([\\s\\S]*?)</code></pre>",
-                    "<div class='mermaid'>$1</div>"
-            );
-        }
-
-        return html;
+        return MarkdownRenderer.getDefault().render(markdown, baseDir);
     }
 
     private static String createLink(String value) {
@@ -321,54 +209,50 @@ public class Utils {
     }
 
     /**
-     * 添加请求处理器
+     * 编码到js中，一次遍历完成，没有需要转义的字符时直接返回原字符串
      *
-     * @param cefBrowser    浏览器实例
-     * @param project       工程
-     * @param initialValues 初始化页面参数
+     * @param str 原始字符串
+     * @return 编码后
      */
-    public static void addRequestHandler(JBCefBrowser cefBrowser, Project project, Map<String, String> initialValues) {
-        cefBrowser.getJBCefClient().addRequestHandler(new CefRequestHandlerAdapter() {
-
-            @Override
-            public boolean onOpenURLFromTab(CefBrowser browser, CefFrame frame, String target_url, boolean user_gesture) {
-                return true;
-            }
-
-            @Override
-            public CefResourceRequestHandler getResourceRequestHandler(CefBrowser browser, CefFrame frame, CefRequest request, boolean isNavigation, boolean isDownload, String requestInitiator, BoolRef disableDefaultHandling) {
-                return new CefResourceRequestHandlerAdapter() {
-                    @Override
-                    public CefResourceHandler getResourceHandler(CefBrowser browser, CefFrame frame, CefRequest request) {
-                        String url = request.getURL();
-                        if (url.startsWith("file:///")) {
-                            return new ResourceHandler(project, initialValues);
-                        }
-                        // 放行非必要处理请求
-                        return null;
-                    }
-                };
-            }
-        }, cefBrowser.getCefBrowser());
+    public static String escapeJavaScript(String str) {
+        return escapeJavaScript(str, 0, str.length());
     }
 
     /**
-     * 编码到js中
+     * 编码字符串的一部分到js中
      *
-     * @param str 原始字符串
+     * @param str   原始字符串
+     * @param start 起始位置（包含）
+     * @param end   结束位置（不包含）
      * @return 编码后
      */
-    public static String escapeJavaScript(String str) {
-        return str.replace("\\", "\\\\")
-                .replace("'", "\\'")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
-    }
-
-
-    private static String escapeAttr(String str) {
-        return str.replace("\\", "\\\\");
+    public static String escapeJavaScript(String str, int start, int end) {
+        StringBuilder sb = null;
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            String replacement = switch (c) {
+                case '\\' -> "\\\\";
+                case '\'' -> "\\'";
+                case '"' -> "\\\"";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                // 旧版本 js 中属于换行符，不能出现在字符串字面量中
+                case '\u2028' -> "\\u2028";
+                case '\u2029' -> "\\u2029";
+                default -> null;
+            };
+            if (replacement != null && sb == null) {
+                sb = new StringBuilder(end - start + 16).append(str, start, i);
+            }
+            if (sb != null) {
+                if (replacement != null) {
+                    sb.append(replacement);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb != null ? sb.toString() : str.substring(start, end);
     }
 }
@@ -0,0 +1,114 @@
+package org.vito.mycodetour.tours.state;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vito.mycodetour.tours.domain.Step;
+import org.vito.mycodetour.tours.domain.Tour;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 步骤引用的只读索引，tour 变化时整体重建。
+ * 文件行号引用按 文件 -> 行号 -> 步骤 组织，行号为基本类型，按行判断时不需要拼接字符串；
+ * 类、方法、字段引用按引用文本索引。同一引用有多个步骤时保留排在前面的；
+ * 另按引用文本有序地保留所有步骤，重命名、移动时按前缀一次找出受影响的步骤
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class StepIndex {
+
+    public static final StepIndex EMPTY = new StepIndex(Collections.emptyMap(), Collections.emptyMap(),
+            Collections.emptyNavigableMap());
+
+    private final Map<String, Int2ObjectMap<Step>> lineSteps;
+    private final Map<String, Step> referenceSteps;
+    private final NavigableMap<String, List<Step>> allSteps;
+
+    private StepIndex(Map<String, Int2ObjectMap<Step>> lineSteps, Map<String, Step> referenceSteps,
+                      NavigableMap<String, List<Step>> allSteps) {
+        this.lineSteps = lineSteps;
+        this.referenceSteps = referenceSteps;
+        this.allSteps = allSteps;
+    }
+
+    public static StepIndex build(@NotNull List<Tour> tours) {
+        Map<String, Int2ObjectMap<Step>> lineSteps = new HashMap<>();
+        Map<String, Step> referenceSteps = new HashMap<>();
+        NavigableMap<String, List<Step>> allSteps = new TreeMap<>();
+        for (Tour tour : tours) {
+            if (tour.getSteps() == null) {
+                continue;
+            }
+            for (Step step : tour.getSteps()) {
+                String file = step.getFile();
+                if (file == null || file.isEmpty()) {
+                    continue;
+                }
+                allSteps.computeIfAbsent(file, f -> new ArrayList<>()).add(step);
+                if (step.getLine() != null) {
+                    Int2ObjectMap<Step> lines = lineSteps.computeIfAbsent(file, f -> new Int2ObjectOpenHashMap<>());
+                    if (!lines.containsKey(step.getLine().intValue())) {
+                        lines.put(step.getLine().intValue(), step);
+                    }
+                } else {
+                    referenceSteps.putIfAbsent(file, step);
+                }
+            }
+        }
+        return new StepIndex(lineSteps, referenceSteps, allSteps);
+    }
+
+    /**
+     * @param file 步骤中的文件，相对路径或文件名
+     * @return 该文件中 行号 -> 步骤，没有步骤时返回 null
+     */
+    public @Nullable Int2ObjectMap<Step> getLineSteps(@NotNull String file) {
+        return lineSteps.get(file);
+    }
+
+    /**
+     * @param reference 类、方法或字段引用
+     * @return 对应的步骤，没有时返回 null
+     */
+    public @Nullable Step findByReference(@NotNull String reference) {
+        return referenceSteps.get(reference);
+    }
+
+    /**
+     * @param reference 步骤中的文件，或类、方法、字段引用
+     * @return 引用与之相同的所有步骤，包括文件行号步骤，没有时为空
+     */
+    public @NotNull List<Step> findAll(@NotNull String reference) {
+        return allSteps.getOrDefault(reference, Collections.emptyList());
+    }
+
+    /**
+     * 按引用文本的前缀查找所有步骤，包括文件行号步骤
+     *
+     * @param prefix 类名、包名或路径，也会匹配与其相等的引用
+     * @return 引用以该前缀开头的步骤，没有时为空
+     */
+    public @NotNull List<Step> findByPrefix(@NotNull String prefix) {
+        List<Step> steps = new ArrayList<>();
+        for (List<Step> matched : allSteps.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            steps.addAll(matched);
+        }
+        return steps;
+    }
+
+    /**
+     * @return 是否有类、方法或字段引用的步骤
+     */
+    public boolean hasReferenceSteps() {
+        return !referenceSteps.isEmpty();
+    }
+}
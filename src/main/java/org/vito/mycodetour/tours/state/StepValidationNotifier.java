@@ -0,0 +1,16 @@
+package org.vito.mycodetour.tours.state;
+
+import com.intellij.util.messages.Topic;
+
+/**
+ * 步骤校验完成，校验结果从 {@link org.vito.mycodetour.tours.service.StepValidationService} 中获取
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public interface StepValidationNotifier {
+
+    Topic<StepValidationNotifier> TOPIC = Topic.create("Tour Steps Validated", StepValidationNotifier.class);
+
+    void stepsValidated();
+}
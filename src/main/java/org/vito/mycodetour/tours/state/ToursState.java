@@ -1,8 +1,6 @@
 package org.vito.mycodetour.tours.state;
 
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.intellij.diagnostic.PluginException;
@@ -64,10 +62,8 @@ public class ToursState {
     private Optional<Tour> activeTour = Optional.empty();
     private int activeStepIndex = -1;
     private Project project;
-    private static LocalDateTime lastValidationTime = LocalDateTime.now().minusHours(2);
     // Caching
-    private final Multimap<String, Integer> stepFileLinesIndex = ArrayListMultimap.create();
-    private final Multimap<String, String> stepIdentifiersIndex = ArrayListMultimap.create();
+    private volatile StepIndex stepIndex = StepIndex.EMPTY;
 
     public ToursState(Project project) {
         this.project = project;
@@ -118,18 +114,6 @@ public class ToursState {
         return this;
     }
 
-    public boolean isValidStep(String identifier) {
-        if (identifier.contains(";")) {
-            for (String s : identifier.split(";")) {
-                if (stepIdentifiersIndex.containsValue(s)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-        return stepIdentifiersIndex.containsValue(identifier);
-    }
-
 
     private List<Tour> loadTours(@NotNull List<TourFolder> tourFolders) {
         final List<Tour> tours = new ArrayList<>();
@@ -165,14 +149,6 @@ public class ToursState {
         // Cache some info
         updateLinesCache(tours);
 
-        // Validate them at most once in an hour
-        // 禁用检测
-//        final LocalDateTime now = LocalDateTime.now();
-//        if (now.isAfter(lastValidationTime.plusHours(1))) {
-//            Validator.validateTours(project, tours);
-//            lastValidationTime = now;
-//        }
-
         return tours;
     }
 
@@ -254,20 +230,15 @@ public class ToursState {
         return folderTours;
     }
 
+    /**
+     * @return 步骤引用的索引，tour 变化后重建
+     */
+    public StepIndex getStepIndex() {
+        return stepIndex;
+    }
+
     private void updateLinesCache(List<Tour> tours) {
-        stepFileLinesIndex.clear();
-        stepIdentifiersIndex.clear();
-        tours.forEach(tour -> {
-            // 更新文件行号索引
-            stepFileLinesIndex.putAll(tour.getStepIndexes());
-            // 更新标识符索引
-            tour.getSteps().forEach(step -> {
-                String reference = step.reference();
-                if (reference != null && !reference.isEmpty() && step.getFile() != null) {
-                    stepIdentifiersIndex.put(step.getFile(), reference);
-                }
-            });
-        });
+        stepIndex = StepIndex.build(tours);
     }
 
     /**
@@ -320,19 +291,29 @@ public class ToursState {
      * @return the updated tour
      */
     public Tour updateTour(Tour tour) {
+        saveTours(List.of(tour));
+        setActiveTour(tour);
+
+        return tour;
+    }
 
+    /**
+     * 保存 tour 文件，不改变当前激活的 tour
+     *
+     * @param toSave 需要保存的 tour
+     */
+    public void saveTours(List<Tour> toSave) {
         WriteAction.runAndWait(() -> {
-            try {
-                final VirtualFile newTourVfile = tour.getVirtualFile();
-                newTourVfile.setBinaryContent(GSON.toJson(tour).getBytes(StandardCharsets.UTF_8));
-                updateLinesCache(tours);
-            } catch (IOException e) {
-                LOG.error("Failed to create tour file: " + e.getMessage(), e);
+            for (Tour tour : toSave) {
+                try {
+                    final VirtualFile newTourVfile = tour.getVirtualFile();
+                    newTourVfile.setBinaryContent(GSON.toJson(tour).getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    LOG.error("Failed to create tour file: " + e.getMessage(), e);
+                }
             }
+            updateLinesCache(tours);
         });
-        setActiveTour(tour);
-
-        return tour;
     }
 
     /**
@@ -565,35 +546,6 @@ public class ToursState {
         return Optional.empty();
     }
 
-    /**
-     * Tries to find the Step that is configured to navigate to the provided file and line, and if found,
-     * it activates its Tour and sets the step as active.
-     *
-     * @param fileName The file to which the Step is configured to navigate
-     * @param line     The line to which the Step is configured to navigate
-     * @return The Step (optional)
-     */
-    public Optional<Step> findStepByFileLine(String fileName, int line) {
-        final Optional<Tour> tourToActivate = getTours().stream()
-                .filter(tour -> tour.getSteps().stream()
-                        .filter(step -> step.getFile() != null)
-                        .anyMatch(step -> step.getFile().equals(fileName) && step.getLine() == line))
-                .findFirst();
-        if (tourToActivate.isEmpty()) return Optional.empty();
-        setActiveTour(tourToActivate.get());
-
-        final List<Step> steps = tourToActivate.get().getSteps();
-        for (int i = 0; i < steps.size(); i++) {
-            final Step step = steps.get(i);
-            if (step.getFile() != null && step.getFile().equals(fileName) && step.getLine() == line) {
-                setActiveStepIndex(i);
-                return Optional.of(step);
-            }
-        }
-
-        return Optional.empty();
-    }
-
     private List<TourFolder> loadFolders() {
 
         return ReadAction.compute(() -> {
@@ -614,37 +566,4 @@ public class ToursState {
         return tourFolders;
     }
 
-    public Optional<Step> findStepByReference(String reference) {
-        // 如果引用包含逗号，说明有两个标识符
-        String[] references = reference.split(";");
-        String relativePathRef = references[0];
-        String fileNameRef = references.length > 1 ? references[1] : null;
-
-        final Optional<Tour> tourToActivate = getTours().stream()
-                .filter(tour -> tour.getSteps().stream()
-                        .anyMatch(step -> {
-                            String stepRef = step.reference();
-                            // 检查是否匹配任一标识符
-                            return stepRef.equals(relativePathRef) ||
-                                    stepRef.equals(fileNameRef);
-                        }))
-                .findFirst();
-        if (tourToActivate.isEmpty()) {
-            return Optional.empty();
-        }
-
-        final List<Step> steps = tourToActivate.get().getSteps();
-        for (int i = 0; i < steps.size(); i++) {
-            final Step step = steps.get(i);
-            String stepRef = step.reference();
-            if (stepRef.equals(relativePathRef) ||
-                    (fileNameRef != null && stepRef.equals(fileNameRef))) {
-                setActiveStepIndex(i);
-                return Optional.of(step);
-            }
-        }
-
-        return Optional.empty();
-    }
-
 }
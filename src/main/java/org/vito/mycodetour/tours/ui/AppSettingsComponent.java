@@ -27,6 +27,9 @@ public class AppSettingsComponent {
 
     private final JPanel mainPanel;
     private final JBCheckBox onboardingAssistantCb = new JBCheckBox("Enable/disable demo");
+    private final JBCheckBox plantUmlLocalCb = new JBCheckBox("Render PlantUML diagrams locally (no network)");
+    private final JBCheckBox stepInlaysCb = new JBCheckBox("Show tour and step titles above step lines");
+    private final JBCheckBox gutterPushModeCb = new JBCheckBox("Show step gutter icons from tracked ranges (follow edits, no daemon pass)");
     private final ComboBox<AppSettingsState.SortOptionE> sortOption =
             new ComboBox<>(AppSettingsState.SortOptionE.values());
     private final ComboBox<AppSettingsState.SortDirectionE> sortDirection =
@@ -56,6 +59,9 @@ public class AppSettingsComponent {
                 .addLabeledComponent(new JBLabel("Tours sort option:"), sortOption, 2)
                 .addLabeledComponent(new JBLabel("Sort direction: ascending / descending"), sortDirection, 3)
                 .addLabeledComponent(new JBLabel(".tour Source path"), pathField, 4)
+                .addComponent(plantUmlLocalCb, 5)
+                .addComponent(gutterPushModeCb, 6)
+                .addComponent(stepInlaysCb, 6)
                 .addComponentFillVertically(new JPanel(), 0)
                 .getPanel();
     }
@@ -99,4 +105,28 @@ public class AppSettingsComponent {
     public void setSourcePath(String sourcePath) {
         pathField.setText(sourcePath);
     }
+
+    public boolean isPlantUmlLocal() {
+        return plantUmlLocalCb.isSelected();
+    }
+
+    public void setPlantUmlLocal(boolean plantUmlLocal) {
+        plantUmlLocalCb.setSelected(plantUmlLocal);
+    }
+
+    public boolean isGutterPushMode() {
+        return gutterPushModeCb.isSelected();
+    }
+
+    public void setGutterPushMode(boolean gutterPushMode) {
+        gutterPushModeCb.setSelected(gutterPushMode);
+    }
+
+    public boolean isStepInlays() {
+        return stepInlaysCb.isSelected();
+    }
+
+    public void setStepInlays(boolean stepInlays) {
+        stepInlaysCb.setSelected(stepInlays);
+    }
 }
@@ -1,17 +1,21 @@
 package org.vito.mycodetour.tours.ui;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.ui.DocumentAdapter;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.components.JBTabbedPane;
 import com.intellij.ui.components.JBTextField;
-import com.intellij.ui.jcef.JBCefBrowser;
-import com.intellij.ui.jcef.JBCefBrowserBase;
-import com.intellij.ui.jcef.JBCefJSQuery;
+import com.intellij.util.Alarm;
 import com.intellij.util.ui.JBUI;
 import com.intellij.util.ui.UI;
 import org.jetbrains.annotations.NotNull;
 import org.vito.mycodetour.tours.domain.Step;
+import org.vito.mycodetour.tours.service.BrowserPool;
+import org.vito.mycodetour.tours.service.PooledBrowser;
 import org.vito.mycodetour.tours.service.Utils;
 
 import javax.swing.Action;
@@ -20,7 +24,7 @@ import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.JTabbedPane;
 import javax.swing.SwingConstants;
-import java.util.Map;
+import javax.swing.event.DocumentEvent;
 
 import static org.vito.mycodetour.tours.service.Utils.equalInt;
 import static org.vito.mycodetour.tours.service.Utils.equalStr;
@@ -33,21 +37,36 @@ import static org.vito.mycodetour.tours.service.Utils.equalStr;
  */
 public class StepEditor extends DialogWrapper {
 
+    private static final int PREVIEW_DELAY_MS = 300;
+
     private JTabbedPane pane;
     private final Project project;
     private final Step step;
 
     private JBTextField titleTextField;
     private JBTextField referenceTextField;
-    private JBCefBrowser previewBrowser;
-    private String currentMarkdown;
+    private PooledBrowser editorBrowser;
+    private volatile PooledBrowser previewBrowser;
+    private volatile String currentMarkdown;
+    private volatile String previewTitle;
+    private volatile String previewReference;
+    private volatile String lastPreviewHtml;
+    private final String previewBaseDir;
+    private final Alarm previewAlarm;
 
     public StepEditor(Project project, Step step) {
         super(project);
         this.project = project;
         this.step = step;
         this.currentMarkdown = step.getDescription();
+        this.previewTitle = step.getTitle();
+        this.previewReference = step.reference();
+        this.previewBaseDir = Utils.baseDirOf(project, step.getOwner());
+        // 预览在后台线程中渲染，连续输入时只渲染最后一次
+        this.previewAlarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, getDisposable());
         init();
+        // 对话框关闭时归还浏览器
+        Disposer.register(getDisposable(), this::releaseBrowsers);
         setTitle("Step Editor");
         getRootPane().setDefaultButton(null);
     }
@@ -64,38 +83,35 @@ public class StepEditor extends DialogWrapper {
         pane.addTab("Preview", createPreviewPanel());
         pane.addChangeListener(e -> {
             if (pane.getSelectedIndex() == 1)
-                updatePreviewComponent();
+                schedulePreviewUpdate(0);
         });
         return JBUI.Panels.simplePanel(pane);
     }
 
     private JComponent createEditorPanel() {
-        // 创建编辑器浏览器
-        JBCefBrowser editorBrowser = new JBCefBrowser();
-
-        // 创建 JavaScript 查询处理器
-        JBCefJSQuery jsQuery = JBCefJSQuery.create((JBCefBrowserBase) editorBrowser);
-        jsQuery.addHandler((query) -> {
+        // 从池中取已预热的编辑器
+        editorBrowser = BrowserPool.getInstance(project).acquire(BrowserPool.Kind.EDITOR);
+        editorBrowser.setQueryHandler((query) -> {
             currentMarkdown = query;
-            updatePreviewComponent();
+            schedulePreviewUpdate(PREVIEW_DELAY_MS);
             return null;
         });
-
-        try {
-            Utils.addRequestHandler(editorBrowser, project,
-                    Map.of("editor", jsQuery.inject("easyMDE.value()"),
-                            "markdown", Utils.escapeJavaScript(currentMarkdown)));
-
-            editorBrowser.loadURL("file:///mycodetour/public/editor/index.html");
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-
+        editorBrowser.setMarkdown(currentMarkdown);
 
         final JBScrollPane editorPane = new JBScrollPane(editorBrowser.getComponent());
 
         titleTextField = new JBTextField(step.getTitle());
         referenceTextField = new JBTextField(step.reference());
+        final DocumentAdapter fieldListener = new DocumentAdapter() {
+            @Override
+            protected void textChanged(@NotNull DocumentEvent e) {
+                previewTitle = titleTextField.getText();
+                previewReference = referenceTextField.getText();
+                schedulePreviewUpdate(PREVIEW_DELAY_MS);
+            }
+        };
+        titleTextField.getDocument().addDocumentListener(fieldListener);
+        referenceTextField.getDocument().addDocumentListener(fieldListener);
 
         final JPanel textFieldsGridPanel = UI.PanelFactory.grid()
                 .add(UI.PanelFactory.panel(titleTextField)
@@ -124,10 +140,12 @@ public class StepEditor extends DialogWrapper {
 
     private JComponent createPreviewPanel() {
 
-        // 创建编辑器浏览器
-        previewBrowser = new JBCefBrowser();
-        Utils.addRequestHandler(previewBrowser, project, Map.of("markdownHtml", Utils.renderFullDoc(step)));
-        previewBrowser.loadURL("file:///mycodetour/public/index.html");
+        // 预览复用同一个浏览器，内容更新时只替换页面内容
+        previewBrowser = BrowserPool.getInstance(project).acquire(BrowserPool.Kind.VIEWER);
+        // 编辑中的图表每次输入都会变化，不写入图表缓存
+        previewBrowser.setCacheDiagrams(false);
+        lastPreviewHtml = Utils.renderFullDoc(project, step);
+        previewBrowser.showMarkdownHtml(lastPreviewHtml);
 
         final JPanel panel = new JPanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
@@ -137,14 +155,53 @@ public class StepEditor extends DialogWrapper {
         return panel;
     }
 
+    private void schedulePreviewUpdate(int delayMillis) {
+        if (previewAlarm.isDisposed()) {
+            return;
+        }
+        previewAlarm.cancelAllRequests();
+        previewAlarm.addRequest(this::updatePreviewComponent, delayMillis);
+    }
+
+    /**
+     * 在后台线程渲染，内容有变化时才在 EDT 中增量更新到预览页。
+     * 已经开始的渲染无法取消，更新前确认浏览器仍归本窗口所有，归还后可能已被其他窗口使用
+     */
     private void updatePreviewComponent() {
-        Utils.addRequestHandler(previewBrowser, project,
-                Map.of("markdownHtml", Utils.renderFullDoc(Step.builder()
-                        .title(titleTextField.getText())
-                        .description(currentMarkdown)
-                        .file(referenceTextField.getText())
-                        .build())));
-        previewBrowser.loadURL("file:///mycodetour/public/index.html");
+        final PooledBrowser browser = previewBrowser;
+        if (browser == null) {
+            return;
+        }
+        final String html = Utils.renderFullDoc(Step.builder()
+                .title(previewTitle)
+                .description(currentMarkdown)
+                .file(previewReference)
+                .build(), previewBaseDir);
+        if (html.equals(lastPreviewHtml)) {
+            return;
+        }
+        ApplicationManager.getApplication().invokeLater(() -> {
+            // releaseBrowsers 也在 EDT 中清空 previewBrowser
+            if (previewBrowser != browser || html.equals(lastPreviewHtml)) {
+                return;
+            }
+            lastPreviewHtml = html;
+            browser.patchMarkdownHtml(html);
+        }, ModalityState.any());
+    }
+
+    private void releaseBrowsers() {
+        previewAlarm.cancelAllRequests();
+        BrowserPool pool = BrowserPool.getInstance(project);
+        if (editorBrowser != null) {
+            pool.release(editorBrowser);
+            editorBrowser = null;
+        }
+        final PooledBrowser browser = previewBrowser;
+        if (browser != null) {
+            previewBrowser = null;
+            pool.release(browser);
+        }
     }
 
     public Step getUpdatedStep() {
@@ -159,6 +216,11 @@ public class StepEditor extends DialogWrapper {
                 ? Integer.parseInt(reference[1])
                 : null;
 
+        // 引用的位置变了，原来的内容指纹和提交不再适用
+        if (!equalStr(step.getFile(), file) || !equalInt(step.getLine(), line)) {
+            step.setAnchor(null);
+            step.setRevision(null);
+        }
         step.setFile(file);
         step.setLine(line);
 
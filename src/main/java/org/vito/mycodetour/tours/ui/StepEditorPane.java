@@ -1,25 +1,24 @@
 package org.vito.mycodetour.tours.ui;
 
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.project.Project;
-import com.intellij.ui.jcef.JBCefBrowser;
-import com.intellij.ui.jcef.JBCefBrowserBase;
-import com.intellij.ui.jcef.JBCefJSQuery;
 import org.vito.mycodetour.tours.domain.Step;
-import org.vito.mycodetour.tours.service.Utils;
+import org.vito.mycodetour.tours.service.BrowserPool;
+import org.vito.mycodetour.tours.service.PooledBrowser;
 import org.vito.mycodetour.tours.state.StateManager;
 
 import javax.swing.JButton;
 import javax.swing.JPanel;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
-import java.util.Map;
 
-public class StepEditorPane extends JPanel {
+public class StepEditorPane extends JPanel implements Disposable {
     private final Project project;
     private final Step step;
     private String currentMarkdown;
     private final Runnable onBack;
+    private PooledBrowser editorBrowser;
 
     public StepEditorPane(Project project, Step step, Runnable onBack) {
         super(new BorderLayout());
@@ -31,26 +30,13 @@ public class StepEditorPane extends JPanel {
     }
 
     private void init() {
-        JBCefBrowser editorBrowser = new JBCefBrowser();
-
-        // 创建 JavaScript 查询处理器
-        JBCefJSQuery jsQuery = JBCefJSQuery.create((JBCefBrowserBase) editorBrowser);
-        jsQuery.addHandler((query) -> {
+        // 从池中取已预热的编辑器
+        editorBrowser = BrowserPool.getInstance(project).acquire(BrowserPool.Kind.EDITOR);
+        editorBrowser.setQueryHandler((query) -> {
             currentMarkdown = query;
             return null;
         });
-
-        try {
-            Utils.addRequestHandler(
-                    editorBrowser,
-                    project,
-                    Map.of("editor", jsQuery.inject("easyMDE.value()"),
-                            "markdown", Utils.escapeJavaScript(currentMarkdown)));
-
-            editorBrowser.loadURL("file:///mycodetour/public/editor/index.html");
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        editorBrowser.setMarkdown(currentMarkdown);
 
         // 移除滚动面板，直接添加编辑器组件
         add(editorBrowser.getComponent(), BorderLayout.CENTER);
@@ -83,4 +69,12 @@ public class StepEditorPane extends JPanel {
         step.setDescription(currentMarkdown.trim());
         StateManager.getInstance().getState(project).updateTour(step.getOwner());
     }
+
+    @Override
+    public void dispose() {
+        if (editorBrowser != null) {
+            BrowserPool.getInstance(project).release(editorBrowser);
+            editorBrowser = null;
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package org.vito.mycodetour.tours.ui;
+
+import com.intellij.openapi.editor.DefaultLanguageHighlighterColors;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorCustomElementRenderer;
+import com.intellij.openapi.editor.Inlay;
+import com.intellij.openapi.editor.colors.EditorFontType;
+import com.intellij.openapi.editor.ex.util.EditorUtil;
+import com.intellij.openapi.editor.markup.TextAttributes;
+import org.jetbrains.annotations.NotNull;
+import org.vito.mycodetour.tours.domain.Step;
+import org.vito.mycodetour.tours.domain.Tour;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+
+/**
+ * 显示在步骤所在行上方的块状内嵌提示，内容为 tour 标题和步骤标题，缩进与代码行对齐
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class StepTitleInlayRenderer implements EditorCustomElementRenderer {
+
+    private final String text;
+    private final int indentColumns;
+
+    /**
+     * @param step          步骤
+     * @param indentColumns 代码行开头空白的列数，制表符按编辑器的制表符宽度计算
+     */
+    public StepTitleInlayRenderer(@NotNull Step step, int indentColumns) {
+        this.text = textOf(step);
+        this.indentColumns = indentColumns;
+    }
+
+    /**
+     * @return 提示的文本，tour 标题和步骤标题都没变时不需要重建提示
+     */
+    public static @NotNull String textOf(@NotNull Step step) {
+        final Tour owner = step.getOwner();
+        final String title = step.getTitle() != null ? step.getTitle() : "";
+        return owner != null && owner.getTitle() != null
+                ? owner.getTitle() + " › " + title
+                : title;
+    }
+
+    @Override
+    public int calcWidthInPixels(@NotNull Inlay inlay) {
+        final Editor editor = inlay.getEditor();
+        return indentPixels(editor) + editor.getContentComponent().getFontMetrics(fontOf(editor)).stringWidth(text);
+    }
+
+    @Override
+    public void paint(@NotNull Inlay inlay, @NotNull Graphics g, @NotNull Rectangle targetRegion,
+                      @NotNull TextAttributes textAttributes) {
+        final Editor editor = inlay.getEditor();
+        final TextAttributes comment = editor.getColorsScheme()
+                .getAttributes(DefaultLanguageHighlighterColors.BLOCK_COMMENT);
+        final Color color = comment != null && comment.getForegroundColor() != null
+                ? comment.getForegroundColor()
+                : editor.getColorsScheme().getDefaultForeground();
+        g.setFont(fontOf(editor));
+        g.setColor(color);
+        g.drawString(text, targetRegion.x + indentPixels(editor), targetRegion.y + editor.getAscent());
+    }
+
+    private int indentPixels(Editor editor) {
+        return indentColumns * EditorUtil.getPlainSpaceWidth(editor);
+    }
+
+    private static Font fontOf(Editor editor) {
+        return editor.getColorsScheme().getFont(EditorFontType.ITALIC);
+    }
+}
@@ -8,6 +8,7 @@ import com.intellij.ide.dnd.DnDEvent;
 import com.intellij.ide.dnd.DnDManager;
 import com.intellij.ide.dnd.DnDSource;
 import com.intellij.ide.dnd.DnDTarget;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.WriteAction;
 import com.intellij.openapi.diagnostic.Logger;
@@ -18,6 +19,7 @@ import com.intellij.openapi.ui.MessageDialogBuilder;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.ui.popup.Balloon;
 import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.StatusBar;
 import com.intellij.openapi.wm.ToolWindow;
@@ -42,11 +44,14 @@ import org.vito.mycodetour.tours.domain.Tour;
 import org.vito.mycodetour.tours.domain.TourFolder;
 import org.vito.mycodetour.tours.service.AppSettingsState;
 import org.vito.mycodetour.tours.service.Navigator;
+import org.vito.mycodetour.tours.service.StepPrefetcher;
 import org.vito.mycodetour.tours.service.StepRendererPane;
+import org.vito.mycodetour.tours.service.StepValidationService;
 import org.vito.mycodetour.tours.service.TourValidator;
 import org.vito.mycodetour.tours.service.Utils;
 import org.vito.mycodetour.tours.state.StateManager;
 import org.vito.mycodetour.tours.state.StepSelectionNotifier;
+import org.vito.mycodetour.tours.state.StepValidationNotifier;
 import org.vito.mycodetour.tours.state.TourUpdateNotifier;
 import org.vito.mycodetour.tours.state.ToursState;
 
@@ -148,6 +153,15 @@ public class ToolPaneWindow {
                             renderActiveTourStepContent(tour);
                         }));
 
+        project.getMessageBus().connect().subscribe(
+                StepValidationNotifier.TOPIC,
+                (StepValidationNotifier) () -> {
+                    if (toursTree.getCellRenderer() instanceof TreeRenderer renderer) {
+                        renderer.setStepProblems(StepValidationService.getInstance(project).getProblems());
+                        toursTree.repaint();
+                    }
+                });
+
         project.getMessageBus().connect().subscribe(
                 StepSelectionNotifier.TOPIC,
                 (StepSelectionNotifier) (step) -> {
@@ -781,7 +795,7 @@ public class ToolPaneWindow {
     private void createOrUpdateContent(@NotNull Step step, @NotNull Project project) {
         currentStep = step;
         if (isEditMode) {
-            splitter.setSecondComponent(new StepEditorPane(project, step, () -> {
+            replaceStepPane(new StepEditorPane(project, step, () -> {
                 isEditMode = false;
                 createOrUpdateContent(currentStep, project);
             }));
@@ -789,7 +803,9 @@ public class ToolPaneWindow {
             content.removeAll();
             content.add(splitter, BorderLayout.CENTER);
         } else {
-            splitter.setSecondComponent(new StepRendererPane(step, project));
+            replaceStepPane(new StepRendererPane(step, project));
+            // 后台准备上一步和下一步
+            StepPrefetcher.getInstance(project).prefetchAround(step);
             // 在查看模式下显示导航按钮
             content.removeAll();
             content.add(splitter, BorderLayout.CENTER);
@@ -797,6 +813,17 @@ public class ToolPaneWindow {
         }
     }
 
+    /**
+     * 替换右侧的step面板，旧面板占用的浏览器归还到池中
+     */
+    private void replaceStepPane(@NotNull JComponent stepPane) {
+        final JComponent previous = splitter.getSecondComponent();
+        splitter.setSecondComponent(stepPane);
+        if (previous instanceof Disposable) {
+            Disposer.dispose((Disposable) previous);
+        }
+    }
+
     private JPanel createNavigationButtons() {
         final JPanel buttonsPanel = new JPanel();
 
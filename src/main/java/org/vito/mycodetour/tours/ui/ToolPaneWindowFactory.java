@@ -1,11 +1,13 @@
 package org.vito.mycodetour.tours.ui;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowFactory;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
 import org.jetbrains.annotations.NotNull;
+import org.vito.mycodetour.tours.service.BrowserPool;
 
 /**
  * Factory class to generate the related Tool Pane Window
@@ -15,6 +17,13 @@ import org.jetbrains.annotations.NotNull;
  */
 public class ToolPaneWindowFactory implements ToolWindowFactory {
 
+    @Override
+    public void init(@NotNull ToolWindow toolWindow) {
+        // 工程打开后预热浏览器，首次点击step时不用再等浏览器启动
+        final Project project = toolWindow.getProject();
+        ApplicationManager.getApplication().invokeLater(
+                () -> BrowserPool.getInstance(project).prewarm(), project.getDisposed());
+    }
 
     @Override
     public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
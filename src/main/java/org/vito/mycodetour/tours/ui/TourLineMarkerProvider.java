@@ -3,27 +3,34 @@ package org.vito.mycodetour.tours.ui;
 import com.intellij.codeInsight.daemon.GutterName;
 import com.intellij.codeInsight.daemon.LineMarkerInfo;
 import com.intellij.codeInsight.daemon.LineMarkerProviderDescriptor;
-import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.markup.GutterIconRenderer;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiIdentifier;
+import com.intellij.psi.PsiMethod;
 import icons.Icons;
-import org.apache.commons.lang3.StringUtils;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.vito.mycodetour.tours.domain.Step;
 import org.vito.mycodetour.tours.service.PsiHelper;
+import org.vito.mycodetour.tours.service.StepGutterManager;
 import org.vito.mycodetour.tours.state.StateManager;
+import org.vito.mycodetour.tours.state.StepIndex;
 import org.vito.mycodetour.tours.state.StepSelectionNotifier;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * @author vito
@@ -31,8 +38,6 @@ import java.util.Map;
  */
 public class TourLineMarkerProvider extends LineMarkerProviderDescriptor {
 
-//    private final Map<String, PsiElement> markedLines = new HashMap<>();
-
     @Override
     public @Nullable("null means disabled") @GutterName String getName() {
         return "CodeTour step";
@@ -40,125 +45,126 @@ public class TourLineMarkerProvider extends LineMarkerProviderDescriptor {
 
     @Override
     public LineMarkerInfo<?> getLineMarkerInfo(@NotNull PsiElement element) {
-//        final PsiFile containingFile = element.getContainingFile();
-//        final Project project = element.getProject();
-//
-//        if (element instanceof LeafPsiElement && containingFile != null &&
-//                StateManager.getInstance().getState(project).isFileIncludedInAnyStep(containingFile.getName())) {
-//            final Document document = PsiDocumentManager.getInstance(project).getDocument(containingFile);
-//            if (document != null) {
-//                final int lineNumber = document.getLineNumber(element.getTextOffset()) + 1;
-//                final String fileLine = String.format("%s:%s", containingFile.getName(), lineNumber);
-//                if (StateManager.getInstance().getState(project).isValidStep(containingFile.getName(), lineNumber)) {
-//                    if (!markedLines.containsKey(fileLine) || element.equals(markedLines.get(fileLine))) {
-//                        markedLines.put(fileLine, element);
-//                        return new LineMarkerInfo<>(element, element.getTextRange(),
-//                                CodeTourIcons.STEP,
-//                                psiElement -> "Code Tour Step",
-//                                (e, elt) -> {
-//                                    StateManager.getInstance().getState(project).findStepByFileLine(containingFile.getName(),
-//                                            lineNumber).ifPresent(step -> {
-//                                        // Notify UI to select the step which will trigger its navigation
-//                                        project.getMessageBus().syncPublisher(StepSelectionNotifier.TOPIC)
-//                                                .selectStep(step);
-//                                    });
-//                                },
-//                                GutterIconRenderer.Alignment.CENTER,
-//                                () -> "Code Tour Step accessible");
-//                    }
-//                }
-//            }
-//        }
         return null;
     }
 
     @Override
     public void collectSlowLineMarkers(@NotNull List<? extends PsiElement> elements, @NotNull Collection<? super LineMarkerInfo<?>> result) {
         super.collectSlowLineMarkers(elements, result);
-        final Map<String, PsiElement> markedLines = new HashMap<>();
+        if (elements.isEmpty()) {
+            return;
+        }
+        final Project project = elements.get(0).getProject();
+        final StepIndex stepIndex = StateManager.getInstance().getState(project).getStepIndex();
+        final boolean linePushed = StepGutterManager.isEnabled();
+        if (linePushed && !stepIndex.hasReferenceSteps()) {
+            return;
+        }
 
+        // 同一次调用中的元素通常来自同一个文件，文件级信息只计算一次
+        FileContext context = null;
         for (PsiElement element : elements) {
-            final Project project = element.getProject();
-
-            // 获取元素的标识符
-            String elementIdentifier = getElementIdentifier(element);
-            if (elementIdentifier == null) {
+            final PsiFile containingFile = element.getContainingFile();
+            if (containingFile == null) {
                 continue;
             }
+            if (!linePushed && (context == null || context.file != containingFile)) {
+                context = FileContext.create(containingFile, stepIndex);
+            }
 
-            // 检查是否是有效的步骤（同时检查相对路径和文件名）
-            if (StateManager.getInstance().getState(project).isValidStep(elementIdentifier)) {
-                if (!markedLines.containsKey(elementIdentifier) || element.equals(markedLines.get(elementIdentifier))) {
-                    markedLines.put(elementIdentifier, element);
-                    StateManager.getInstance().getState(project)
-                            .findStepByReference(elementIdentifier)
-                            .ifPresent(step -> result.add(new LineMarkerInfo<>(
-                                    element,
-                                    element.getTextRange(),
-                                    Icons.STEP_12,
-                                    psiElement -> step.getTitle(),
-                                    (e, elt) -> project
-                                            .getMessageBus()
-                                            .syncPublisher(StepSelectionNotifier.TOPIC)
-                                            .selectStep(step),
-                                    GutterIconRenderer.Alignment.CENTER,
-                                    () -> "Code Tour Step accessible")));
+            // 类、方法、字段的声明处只按引用匹配
+            if (isDeclarationIdentifier(element)) {
+                if (stepIndex.hasReferenceSteps()) {
+                    final String reference = PsiHelper.getIdentifierReference(element);
+                    final Step step = reference != null ? stepIndex.findByReference(reference) : null;
+                    if (step != null) {
+                        result.add(createLineMarker(element, step, project));
+                    }
                 }
+                continue;
+            }
+
+            // 先按行号判断，没有步骤的行不做其他计算；推送模式下行图标由 StepGutterManager 装上
+            if (linePushed || context.isEmpty()) {
+                continue;
+            }
+            final int lineNumber = context.document.getLineNumber(element.getTextOffset()) + 1;
+            final Step step = context.stepAt(lineNumber);
+            if (step != null && context.markedLines.add(lineNumber)) {
+                result.add(createLineMarker(element, step, project));
             }
         }
-        markedLines.clear();
+    }
+
+    private static LineMarkerInfo<PsiElement> createLineMarker(PsiElement element, Step step, Project project) {
+        return new LineMarkerInfo<>(
+                element,
+                element.getTextRange(),
+                Icons.STEP_12,
+                psiElement -> step.getTitle(),
+                (e, elt) -> project.getMessageBus()
+                        .syncPublisher(StepSelectionNotifier.TOPIC)
+                        .selectStep(step),
+                GutterIconRenderer.Alignment.CENTER,
+                () -> "Code Tour Step accessible");
+    }
+
+    private static boolean isDeclarationIdentifier(PsiElement element) {
+        if (!(element instanceof PsiIdentifier)) {
+            return false;
+        }
+        final PsiElement parent = element.getParent();
+        return parent instanceof PsiClass || parent instanceof PsiMethod || parent instanceof PsiField;
     }
 
     /**
-     * 获取 PSI 元素的唯一标识符
-     *
-     * @param element PSI 元素
-     * @return 元素的标识符，格式如下：
-     * - 方法：className#methodName
-     * - 类：fullyQualifiedClassName
-     * - 字段：className#fieldName
-     * - 其他：返回两个标识符，用逗号分隔：
-     *   1. relativePath:lineNumber（相对于源码根目录的路径）
-     *   2. fileName:lineNumber（仅文件名）
+     * 文件级的信息：文档以及该文件中按行号索引的步骤，
+     * 步骤中的文件可以是相对于源码根目录的路径，也可以只是文件名
      */
-    private @Nullable String getElementIdentifier(@NotNull PsiElement element) {
-        String reference = PsiHelper.getIdentifierReference(element);
-        if (StringUtils.isNotEmpty(reference)) {
-            return reference;
+    private static final class FileContext {
+        private final PsiFile file;
+        private final Document document;
+        private final Int2ObjectMap<Step> byRelativePath;
+        private final Int2ObjectMap<Step> byFileName;
+        private final IntSet markedLines = new IntOpenHashSet();
+
+        private FileContext(PsiFile file, Document document,
+                            Int2ObjectMap<Step> byRelativePath, Int2ObjectMap<Step> byFileName) {
+            this.file = file;
+            this.document = document;
+            this.byRelativePath = byRelativePath;
+            this.byFileName = byFileName;
         }
 
-        // 对于其他类型的元素，使用文件行号作为标识符
-        PsiFile containingFile = element.getContainingFile();
-        if (containingFile != null) {
-            Document document = PsiDocumentManager.getInstance(element.getProject()).getDocument(containingFile);
-            if (document != null) {
-                int lineNumber = document.getLineNumber(element.getTextOffset()) + 1;
+        static FileContext create(@NotNull PsiFile file, @NotNull StepIndex stepIndex) {
+            final Document document = PsiDocumentManager.getInstance(file.getProject()).getDocument(file);
+            if (document == null) {
+                return new FileContext(file, null, null, null);
+            }
+            Int2ObjectMap<Step> byRelativePath = null;
+            final VirtualFile virtualFile = file.getVirtualFile();
+            if (virtualFile != null) {
                 // 获取文件相对于源码根目录的路径
-                String relativePath = ReadAction.compute(() -> {
-                    Project project = element.getProject();
-                    ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
-                    VirtualFile virtualFile = containingFile.getVirtualFile();
-                    if (virtualFile != null) {
-                        VirtualFile sourceRoot = fileIndex.getSourceRootForFile(virtualFile);
-                        if (sourceRoot != null) {
-                            String fullPath = virtualFile.getPath();
-                            String sourceRootPath = sourceRoot.getPath();
-                            if (fullPath.startsWith(sourceRootPath)) {
-                                return fullPath.substring(sourceRootPath.length() + 1);
-                            }
-                        }
-                    }
-                    return null;
-                });
-
-                // 返回两个标识符，用逗号分隔
-                String fileName = containingFile.getName();
+                final VirtualFile sourceRoot = ProjectFileIndex.getInstance(file.getProject())
+                        .getSourceRootForFile(virtualFile);
+                final String relativePath = sourceRoot != null
+                        ? VfsUtilCore.getRelativePath(virtualFile, sourceRoot)
+                        : null;
                 if (relativePath != null) {
-                    return String.format("%s:%d;%s:%d", relativePath, lineNumber, fileName, lineNumber);
+                    byRelativePath = stepIndex.getLineSteps(relativePath);
                 }
-                return String.format("%s:%d", fileName, lineNumber);
             }
+            return new FileContext(file, document, byRelativePath, stepIndex.getLineSteps(file.getName()));
+        }
+
+        boolean isEmpty() {
+            return document == null || (byRelativePath == null && byFileName == null);
+        }
+
+        @Nullable
+        Step stepAt(int lineNumber) {
+            final Step step = byRelativePath != null ? byRelativePath.get(lineNumber) : null;
+            return step != null || byFileName == null ? step : byFileName.get(lineNumber);
         }
-        return null;
     }
-}
\ No newline at end of file
+}
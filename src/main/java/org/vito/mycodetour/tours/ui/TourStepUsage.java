@@ -0,0 +1,116 @@
+package org.vito.mycodetour.tours.ui;
+
+import com.intellij.openapi.fileEditor.FileEditorLocation;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.SimpleTextAttributes;
+import com.intellij.usages.TextChunk;
+import com.intellij.usages.Usage;
+import com.intellij.usages.UsagePresentation;
+import com.intellij.usages.impl.rules.UsageType;
+import com.intellij.usages.rules.UsageInFile;
+import com.intellij.usages.rules.UsageWithType;
+import icons.Icons;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.vito.mycodetour.tours.domain.Step;
+import org.vito.mycodetour.tours.state.StepSelectionNotifier;
+
+import javax.swing.Icon;
+
+/**
+ * 查找用法中的一个步骤，按 tour 文件分组，打开时在 tour 树中选中该步骤
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public class TourStepUsage implements Usage, UsageInFile, UsageWithType {
+
+    private static final UsageType TOUR_STEP = new UsageType(() -> "Tour step");
+
+    private final Project project;
+    private final Step step;
+
+    public TourStepUsage(@NotNull Project project, @NotNull Step step) {
+        this.project = project;
+        this.step = step;
+    }
+
+    @Override
+    public @NotNull UsagePresentation getPresentation() {
+        return new UsagePresentation() {
+            @Override
+            public TextChunk[] getText() {
+                return new TextChunk[]{
+                        new TextChunk(SimpleTextAttributes.REGULAR_ATTRIBUTES.toTextAttributes(),
+                                StepTitleInlayRenderer.textOf(step)),
+                        new TextChunk(SimpleTextAttributes.GRAYED_ATTRIBUTES.toTextAttributes(),
+                                "  " + step.reference())};
+            }
+
+            @Override
+            public @NotNull String getPlainText() {
+                return StepTitleInlayRenderer.textOf(step) + "  " + step.reference();
+            }
+
+            @Override
+            public Icon getIcon() {
+                return Icons.STEP_12;
+            }
+
+            @Override
+            public String getTooltipText() {
+                return step.reference();
+            }
+        };
+    }
+
+    @Override
+    public @Nullable VirtualFile getFile() {
+        return step.getOwner() != null ? step.getOwner().getVirtualFile() : null;
+    }
+
+    @Override
+    public @Nullable UsageType getUsageType() {
+        return TOUR_STEP;
+    }
+
+    @Override
+    public boolean isValid() {
+        return !project.isDisposed() && step.getOwner() != null && step.getOwner().getSteps().contains(step);
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public @Nullable FileEditorLocation getLocation() {
+        return null;
+    }
+
+    @Override
+    public void selectInEditor() {
+        navigate(true);
+    }
+
+    @Override
+    public void highlightInEditor() {
+    }
+
+    @Override
+    public void navigate(boolean requestFocus) {
+        project.getMessageBus().syncPublisher(StepSelectionNotifier.TOPIC).selectStep(step);
+    }
+
+    @Override
+    public boolean canNavigate() {
+        return isValid();
+    }
+
+    @Override
+    public boolean canNavigateToSource() {
+        return false;
+    }
+}
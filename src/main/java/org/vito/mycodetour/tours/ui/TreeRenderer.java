@@ -31,6 +31,7 @@ public class TreeRenderer extends ColoredTreeCellRenderer {
     private boolean isDropAbove = false;  // 新增：表示是否拖放到目标上方
     private String searchText = "";
     private final Map<Object, String> highlightMap = new HashMap<>();
+    private Map<Step, String> stepProblems = Map.of();
 
     public TreeRenderer(String selectedTourId) {
         this.selectedTourId = selectedTourId;
@@ -217,8 +218,8 @@ public class TreeRenderer extends ColoredTreeCellRenderer {
                     setIcon(Icons.TOUR_16);
                 else
                     setIcon(Icons.TOUR_OPEN_16);
-            } else if (userObject instanceof Step) {
-                setIcon(Icons.STEP_12);
+            } else if (userObject instanceof Step step) {
+                setIcon(stepProblems.containsKey(step) ? AllIcons.General.Warning : Icons.STEP_12);
             } else if (userObject instanceof TourFolder) {
                 setIcon(AllIcons.Nodes.Folder);
             }
@@ -261,6 +262,13 @@ public class TreeRenderer extends ColoredTreeCellRenderer {
                 append(userObject.toString(), SimpleTextAttributes.REGULAR_ATTRIBUTES);
             }
 
+            // 校验发现的问题
+            final String problem = userObject instanceof Step ? stepProblems.get(userObject) : null;
+            if (problem != null) {
+                append("  " + problem, SimpleTextAttributes.GRAYED_SMALL_ATTRIBUTES);
+            }
+            setToolTipText(problem);
+
             // 拖动效果
             if (isDragging) {
                 if (userObject.equals(draggedObject)) {
@@ -308,6 +316,13 @@ public class TreeRenderer extends ColoredTreeCellRenderer {
         setBorder(null);
     }
 
+    /**
+     * @param stepProblems 有问题的步骤 -> 问题描述
+     */
+    public void setStepProblems(Map<Step, String> stepProblems) {
+        this.stepProblems = stepProblems;
+    }
+
     public void setSelectedTourId(String selectedTourId) {
         this.selectedTourId = selectedTourId;
     }
@@ -35,6 +35,14 @@ public class UtilsTests {
         Assert.assertEquals(expectedHtml, html);
     }
 
+    @Test
+    public void testEscapeJavaScript() {
+        Assert.assertEquals("plain text", Utils.escapeJavaScript("plain text"));
+        Assert.assertEquals("a\\\\b\\'c\\\"d\\ne\\rf\\tg\\u2028",
+                Utils.escapeJavaScript("a\\b'c\"d\ne\rf\tg\u2028"));
+        Assert.assertEquals("\\nb", Utils.escapeJavaScript("a\nb\n", 1, 3));
+    }
+
     @Test
     public void testSort() {
 
@@ -0,0 +1,119 @@
+package org.vito.mycodetour.tours.cli;
+
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author vito
+ * Created on 2026/10/19
+ */
+public class HeadlessTourValidatorTest extends TestCase {
+
+    private static final String ORDER = """
+            package demo.shop;
+
+            public class Order {
+                private long id;
+
+                public long getId() {
+                    System.out.println(id);
+                    return id;
+                }
+
+                public static class Line {
+                    int count;
+                }
+            }
+            """;
+
+    private static final String TOUR = """
+            {
+              "title": "Demo",
+              "steps": [
+                {"title": "ok line", "file": "src/demo/shop/Order.java", "line": 4},
+                {"title": "bad line", "file": "Order.java", "line": 40},
+                {"title": "missing file", "file": "Missing.java", "line": 1},
+                {"title": "ok class", "file": "demo.shop.Order"},
+                {"title": "ok method", "file": "demo.shop.Order#getId()"},
+                {"title": "ok nested", "file": "demo.shop.Order$Line#count"},
+                {"title": "bad member", "file": "demo.shop.Order#setId"},
+                {"title": "call site only", "file": "demo.shop.Order#println"},
+                {"title": "bad package", "file": "demo.other.Order"},
+                {"title": "no reference"},
+                {"title": "ambiguous", "file": "Util.java", "line": 1},
+                {"title": "ambiguous bad line", "file": "Util.java", "line": 5},
+                {"title": "ok path", "file": "a/Util.java", "line": 1},
+                {"title": "wrong path", "file": "c/Util.java", "line": 1},
+                {"title": "bad line", "file": "Order.java", "line": "x"},
+                42
+              ]
+            }
+            """;
+
+    private Path root;
+
+    @Override
+    protected void setUp() throws Exception {
+        root = Files.createTempDirectory("tours");
+        write("src/demo/shop/Order.java", ORDER);
+        write("src/a/Util.java", "class Util {}");
+        write("src/b/Util.java", "class Util {}");
+        write(".tours/demo.tour", TOUR);
+        // 构建目录中的文件不参与索引
+        write("build/demo.tour", "not a tour");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    public void testValidate() throws IOException {
+        final HeadlessTourValidator.Report report = new HeadlessTourValidator(root).validate();
+
+        Assert.assertEquals(16, report.getSteps());
+        final List<String> problems = report.getProblems().stream()
+                .map(problem -> problem.getReference() + " " + problem.getMessage())
+                .collect(Collectors.toList());
+        Assert.assertEquals(List.of(
+                "Order.java:40 Line 40 is out of range, 'Order.java' has 15 lines",
+                "Missing.java:1 File 'Missing.java' not found",
+                "demo.shop.Order#setId Member 'setId' not found in 'demo.shop.Order'",
+                "demo.shop.Order#println Member 'println' not found in 'demo.shop.Order'",
+                "demo.other.Order Class 'demo.other.Order' not found",
+                "Util.java:5 Line 5 is out of range, 'Util.java' has 1 lines",
+                "c/Util.java:1 File 'c/Util.java' not found",
+                "Order.java Invalid line: \"x\"",
+                "null Invalid step: not a JSON object"), problems);
+        Assert.assertTrue(report.toJson().contains("\"tourFile\": \".tours/demo.tour\""));
+    }
+
+    public void testHasDeclaration() {
+        Assert.assertTrue(HeadlessTourValidator.hasDeclaration("private long id;", "id"));
+        Assert.assertTrue(HeadlessTourValidator.hasDeclaration("public <T> List<T> load(int a) {", "load"));
+        Assert.assertTrue(HeadlessTourValidator.hasDeclaration("String[] names = {};", "names"));
+        Assert.assertTrue(HeadlessTourValidator.hasDeclaration("fun <T> Repo.load(id: Int) = 1", "load"));
+        Assert.assertTrue(HeadlessTourValidator.hasDeclaration("val count: Int = 0", "count"));
+        Assert.assertTrue(HeadlessTourValidator.hasDeclaration("enum Color {\n    RED,\n    GREEN\n}", "GREEN"));
+        Assert.assertFalse(HeadlessTourValidator.hasDeclaration("repo.load(1);", "load"));
+        Assert.assertFalse(HeadlessTourValidator.hasDeclaration("return load(1);", "load"));
+        Assert.assertFalse(HeadlessTourValidator.hasDeclaration("x = new load();\n    load();", "load"));
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        final Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+}
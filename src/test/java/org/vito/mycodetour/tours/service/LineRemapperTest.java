@@ -0,0 +1,68 @@
+package org.vito.mycodetour.tours.service;
+
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+/**
+ * @author vito
+ * Created on 2026/10/19
+ */
+public class LineRemapperTest extends TestCase {
+
+    /**
+     * 在第 2 行后插入 3 行，第 10-11 行改成 1 行，删除第 20 行
+     */
+    private static final String DIFF = """
+            diff --git a/src/demo/Order.java b/src/demo/Order.java
+            index 1111111..2222222 100644
+            --- a/src/demo/Order.java
+            +++ b/src/demo/Order.java
+            @@ -2,0 +3,3 @@ package demo;
+            +import java.util.List;
+            +import java.util.Map;
+            +
+            @@ -10,2 +13 @@ public class Order {
+            -    private long id;
+            -    private long owner;
+            +    private final long id;
+            @@ -20 +22,0 @@ public class Order {
+            -    // todo
+            """;
+
+    public void testIdentity() {
+        Assert.assertSame(LineRemapper.IDENTITY, LineRemapper.parse(""));
+        Assert.assertEquals(42, LineRemapper.IDENTITY.map(42));
+    }
+
+    public void testMap() {
+        LineRemapper remapper = LineRemapper.parse(DIFF);
+        // 插入点之前不变
+        Assert.assertEquals(1, remapper.map(1));
+        Assert.assertEquals(2, remapper.map(2));
+        // 插入之后下移 3 行
+        Assert.assertEquals(6, remapper.map(3));
+        Assert.assertEquals(12, remapper.map(9));
+        // 修改的行无法精确映射
+        Assert.assertEquals(-1, remapper.map(10));
+        Assert.assertEquals(-1, remapper.map(11));
+        // 2 行改成 1 行之后整体下移 2 行
+        Assert.assertEquals(14, remapper.map(12));
+        Assert.assertEquals(21, remapper.map(19));
+        // 删除的行
+        Assert.assertEquals(-1, remapper.map(20));
+        Assert.assertEquals(22, remapper.map(21));
+    }
+
+    public void testApproximate() {
+        LineRemapper remapper = LineRemapper.parse(DIFF);
+        Assert.assertEquals(6, remapper.approximate(3));
+        Assert.assertEquals(13, remapper.approximate(10));
+        Assert.assertEquals(13, remapper.approximate(11));
+        Assert.assertEquals(22, remapper.approximate(20));
+    }
+
+    public void testInsertAtFileStart() {
+        LineRemapper remapper = LineRemapper.parse("@@ -0,0 +1,2 @@\n+// header\n+\n");
+        Assert.assertEquals(3, remapper.map(1));
+    }
+}
@@ -0,0 +1,111 @@
+package org.vito.mycodetour.tours.service;
+
+import junit.framework.TestCase;
+import org.intellij.markdown.ast.ASTNode;
+import org.intellij.markdown.html.HtmlGenerator;
+import org.intellij.markdown.parser.MarkdownParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author vito
+ * Created on 2026/10/19
+ */
+public class MarkdownPreprocessorTest extends TestCase {
+
+    private final MarkdownPreprocessor preprocessor = new MarkdownPreprocessor(new MarkdownPreprocessor.ResourceLocator() {
+        private final Map<String, String> files = Map.of(
+                "/base/img/a.png", "",
+                "/base/flow.excalidraw", "excalidraw-0123456789abcdef0123456789abcdef",
+                "/base/cached.excalidraw", "excalidraw-fedcba9876543210fedcba9876543210");
+
+        @Override
+        public @Nullable String resolve(@NotNull String relativePath) {
+            String path = "/base/" + relativePath;
+            return files.containsKey(path) ? path : null;
+        }
+
+        @Override
+        public @Nullable String diagramKey(@NotNull String path) {
+            return files.get(path);
+        }
+
+        @Override
+        public boolean hasSvg(@NotNull String key) {
+            return key.startsWith("excalidraw-fedcba");
+        }
+    });
+
+    public void testWikiLinks() {
+        Assert.assertEquals("see <a href=\"navigate://Foo.java:10\">Foo.java:10</a> and [[]] [x]",
+                preprocessor.process("see [[Foo.java:10]] and [[]] [x]"));
+        Assert.assertEquals("<a href=\"tour://demo.tour#Intro\">demo.tour#Intro</a>",
+                preprocessor.process("[[demo.tour#Intro]]"));
+        Assert.assertEquals("demo.tour", preprocessor.process("[[demo.tour]]"));
+    }
+
+    public void testEmbeds() {
+        Assert.assertEquals("<img src='file:///base/img/a.png' alt='img/a.png' data-origin-src='img/a.png'/>",
+                preprocessor.process("![[img/a.png]]"));
+        Assert.assertEquals("<img src='file:///missing.png' alt='missing.png'>",
+                preprocessor.process("![[missing.png]]"));
+        Assert.assertEquals("<div class='excalidraw' data-key='excalidraw-0123456789abcdef0123456789abcdef'"
+                        + " data-source-file='/base/flow.excalidraw'"
+                        + " data-src='file:///mycodetour/diagram/excalidraw-0123456789abcdef0123456789abcdef.js'></div>",
+                preprocessor.process("![[flow.excalidraw]]"));
+        Assert.assertEquals("<div class='excalidraw' data-key='excalidraw-fedcba9876543210fedcba9876543210'"
+                        + " data-source-file='/base/cached.excalidraw'><img"
+                        + " src='file:///mycodetour/cache/excalidraw-fedcba9876543210fedcba9876543210.svg'"
+                        + " alt='cached.excalidraw'/></div>",
+                preprocessor.process("![[cached.excalidraw]]"));
+        Assert.assertEquals("<div class='excalidraw' data-missing='it&#39;s.excalidraw'></div>",
+                preprocessor.process("![[it's.excalidraw]]"));
+    }
+
+    public void testEmbedTargets() {
+        Assert.assertEquals(List.of("img/a.png", "flow.excalidraw"),
+                MarkdownPreprocessor.embeds("![[img/a.png]] [[Foo.java:1]] ![[]] ![[x]y]] ![[flow.excalidraw]] ![[open"));
+        Assert.assertEquals(List.of(), MarkdownPreprocessor.embeds("no embeds"));
+    }
+
+    public void testPlantUml() {
+        Assert.assertEquals("```startuml\nA -> B: [[x]]\n```",
+                preprocessor.process("@startuml\n  A -> B: [[x]]\n@enduml"));
+        Assert.assertEquals("@startuml without end", preprocessor.process("@startuml without end"));
+    }
+
+    public void testUnbalancedBracketsStayLinear() {
+        String markdown = "[[".repeat(50_000) + "text";
+        Assert.assertEquals(markdown, preprocessor.process(markdown));
+    }
+
+    public void testDiagramCodeFences() {
+        String markdown = "```mermaid\ngraph TD\nA-->B\n```\n\n```java\nint a = 1 < 2;\n```";
+        String html = render(markdown, new TourFlavourDescriptor());
+
+        String key = DiagramSvgCache.keyOf("mermaid", "dark\ngraph TD\nA-->B\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(html, html.contains("<div class='mermaid' data-key='" + key + "'>graph TD\nA--&gt;B\n</div>"));
+        Assert.assertTrue(html, html.contains("<code class=\"language-java\">int a = 1 &lt; 2;\n</code>"));
+
+        String cached = render(markdown, new TourFlavourDescriptor(k -> k.equals(key) ? "<svg/>" : null));
+        Assert.assertTrue(cached, cached.contains("<div class='mermaid' data-key='" + key + "' data-cached='true'><svg/></div>"));
+
+        String uml = render("@startuml\nA -> B: a < b\n@enduml", new TourFlavourDescriptor());
+        String umlKey = DiagramSvgCache.keyOf(PlantUmlRenderer.TYPE, "A -> B: a < b\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(uml, uml.contains("<div class='plantuml' data-src='file:///mycodetour/plantuml/" + umlKey
+                + ".svg'>A -&gt; B: a &lt; b\n</div>"));
+        Assert.assertEquals("A -> B: a < b\n", PlantUmlRenderer.getSource(umlKey));
+    }
+
+    private String render(String markdown, TourFlavourDescriptor flavour) {
+        String processed = preprocessor.process(markdown);
+        ASTNode tree = new MarkdownParser(flavour).buildMarkdownTreeFromString(processed);
+        return new HtmlGenerator(processed, tree, flavour, false)
+                .generateHtml(new HtmlGenerator.DefaultTagRenderer((node, tagName, attributes) -> attributes, false));
+    }
+}
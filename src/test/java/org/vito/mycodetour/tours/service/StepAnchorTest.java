@@ -0,0 +1,89 @@
+package org.vito.mycodetour.tours.service;
+
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+/**
+ * @author vito
+ * Created on 2026/10/19
+ */
+public class StepAnchorTest extends TestCase {
+
+    private static final String SOURCE = """
+            package demo;
+
+            public class Order {
+                private final long id;
+
+                public Order(long id) {
+                    this.id = id;
+                }
+
+                public long getId() {
+                    return id;
+                }
+            }
+            """;
+
+    public void testFingerprintIgnoresWhitespace() {
+        String reformatted = SOURCE.replace("    ", "\t").replace("(long id)", "( long id )");
+        Assert.assertEquals(StepAnchor.fingerprint(SOURCE, 6), StepAnchor.fingerprint(reformatted, 6));
+        Assert.assertNull(StepAnchor.fingerprint(SOURCE, 0));
+        Assert.assertNull(StepAnchor.fingerprint(SOURCE, 100));
+    }
+
+    public void testUnchangedLine() {
+        String fingerprint = StepAnchor.fingerprint(SOURCE, 10);
+        Assert.assertTrue(StepAnchor.matches(SOURCE, 10, fingerprint));
+        Assert.assertEquals(10, StepAnchor.locate(SOURCE, 10, fingerprint));
+    }
+
+    public void testLineShiftedDown() {
+        String fingerprint = StepAnchor.fingerprint(SOURCE, 10);
+        String edited = SOURCE.replace("public class Order {\n",
+                "/**\n * Order entity\n */\npublic class Order {\n    private String note;\n");
+        Assert.assertFalse(StepAnchor.matches(edited, 10, fingerprint));
+        Assert.assertEquals(14, StepAnchor.locate(edited, 10, fingerprint));
+    }
+
+    public void testLineShiftedUp() {
+        String fingerprint = StepAnchor.fingerprint(SOURCE, 10);
+        String edited = SOURCE.replace("package demo;\n\n", "");
+        Assert.assertEquals(8, StepAnchor.locate(edited, 10, fingerprint));
+    }
+
+    public void testNeighbourChanged() {
+        // 上一行变了，当前行和下一行仍能匹配
+        String fingerprint = StepAnchor.fingerprint(SOURCE, 10);
+        String edited = SOURCE.replace("    }\n\n    public long getId", "    }\n    // id\n    public long getId");
+        Assert.assertFalse(StepAnchor.matches(edited, 10, fingerprint));
+        Assert.assertEquals(10, StepAnchor.locate(edited, 10, fingerprint));
+    }
+
+    public void testAmbiguousLineNotRelocated() {
+        // 上下行都变了，只剩 "}" 本身能匹配
+        String fingerprint = StepAnchor.fingerprint("start();\n}\nend();", 2);
+        Assert.assertEquals(2, StepAnchor.locate("begin();\n}\nfinish();", 2, fingerprint));
+        Assert.assertEquals(-1, StepAnchor.locate("begin();\n}\nfinish();\nother();\n}\nlast();", 2, fingerprint));
+    }
+
+    public void testDeletedLine() {
+        String fingerprint = StepAnchor.fingerprint(SOURCE, 4);
+        String edited = SOURCE.replace("    private final long id;\n", "");
+        Assert.assertEquals(-1, StepAnchor.locate(edited, 4, fingerprint));
+        Assert.assertEquals(-1, StepAnchor.locate(SOURCE, 4, "not-a-fingerprint"));
+        Assert.assertEquals(-1, StepAnchor.locate(SOURCE, 4, null));
+    }
+
+    public void testSharedLineHashes() {
+        // 同一文件的多个步骤共用一次计算的哈希，结果与按文本计算相同
+        String edited = "// header\n// more\n" + SOURCE;
+        int[] hashes = StepAnchor.lineHashes(edited);
+        for (int line = 1; line <= 12; line++) {
+            String fingerprint = StepAnchor.fingerprint(SOURCE, line);
+            Assert.assertEquals(StepAnchor.fingerprint(edited, line), StepAnchor.fingerprint(hashes, line));
+            Assert.assertEquals(StepAnchor.locate(edited, line, fingerprint), StepAnchor.locate(hashes, line, fingerprint));
+            Assert.assertEquals(StepAnchor.matches(edited, line, fingerprint), StepAnchor.matches(hashes, line, fingerprint));
+        }
+    }
+}
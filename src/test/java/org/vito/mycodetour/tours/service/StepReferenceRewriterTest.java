@@ -0,0 +1,61 @@
+package org.vito.mycodetour.tours.service;
+
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+/**
+ * @author vito
+ * Created on 2026/10/19
+ */
+public class StepReferenceRewriterTest extends TestCase {
+
+    public void testRenameClass() {
+        Assert.assertEquals("demo.shop.Invoice",
+                StepReferenceRewriter.renameQualifiedName("demo.shop.Order", "demo.shop.Order", "demo.shop.Invoice"));
+        Assert.assertEquals("demo.shop.Invoice#getId()",
+                StepReferenceRewriter.renameQualifiedName("demo.shop.Order#getId()", "demo.shop.Order",
+                        "demo.shop.Invoice"));
+        Assert.assertEquals("demo.shop.Invoice.Line#count",
+                StepReferenceRewriter.renameQualifiedName("demo.shop.Order.Line#count", "demo.shop.Order",
+                        "demo.shop.Invoice"));
+        // 只是名称前缀相同的类不受影响
+        Assert.assertNull(StepReferenceRewriter.renameQualifiedName("demo.shop.OrderLine", "demo.shop.Order",
+                "demo.shop.Invoice"));
+    }
+
+    public void testRenamePackage() {
+        Assert.assertEquals("demo.store.Order#getId()",
+                StepReferenceRewriter.renameQualifiedName("demo.shop.Order#getId()", "demo.shop", "demo.store"));
+        Assert.assertEquals("demo.shop.sub.Order",
+                StepReferenceRewriter.renameQualifiedName("demo.shop.Order", "demo.shop", "demo.shop.sub"));
+        Assert.assertNull(StepReferenceRewriter.renameQualifiedName("demo.shopping.Order", "demo.shop", "demo.store"));
+    }
+
+    public void testRenameMember() {
+        Assert.assertEquals("demo.Order#getKey(int, java.lang.String)",
+                StepReferenceRewriter.renameMember("demo.Order#getId(int, java.lang.String)", "demo.Order", "getId",
+                        "getId(int, java.lang.String)", "demo.Order", "getKey"));
+        // 编码过的签名保持原样
+        Assert.assertEquals("demo.Order#getKey(int,%20java.lang.String)",
+                StepReferenceRewriter.renameMember("demo.Order#getId(int,%20java.lang.String)", "demo.Order",
+                        "getId", "getId(int, java.lang.String)", "demo.Order", "getKey"));
+        Assert.assertEquals("demo.Invoice#getKey",
+                StepReferenceRewriter.renameMember("demo.Order#getId", "demo.Order", "getId", "getId()",
+                        "demo.Invoice", "getKey"));
+        // 其他重载和同名前缀的成员不受影响
+        Assert.assertNull(StepReferenceRewriter.renameMember("demo.Order#getId(long)", "demo.Order", "getId",
+                "getId(int, java.lang.String)", "demo.Order", "getKey"));
+        Assert.assertNull(StepReferenceRewriter.renameMember("demo.Order#getIdentity", "demo.Order", "getId",
+                null, "demo.Order", "getKey"));
+        Assert.assertEquals("demo.Order#key",
+                StepReferenceRewriter.renameMember("demo.Order#id", "demo.Order", "id", null, "demo.Order", "key"));
+    }
+
+    public void testRenamePath() {
+        Assert.assertEquals("demo/Invoice.java",
+                StepReferenceRewriter.renamePath("demo/Order.java", "demo/Order.java", "demo/Invoice.java"));
+        Assert.assertEquals("demo/store/Order.java",
+                StepReferenceRewriter.renamePath("demo/shop/Order.java", "demo/shop", "demo/store"));
+        Assert.assertNull(StepReferenceRewriter.renamePath("demo/shopping/Order.java", "demo/shop", "demo/store"));
+    }
+}
@@ -3,6 +3,8 @@ package org.vito.mycodetour.tours.service;
 import junit.framework.TestCase;
 import org.junit.Assert;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,4 +24,28 @@ public class TinyTemplateEngineTest extends TestCase {
         String result = TinyTemplateEngine.renderHtml(template, data);
         Assert.assertEquals("Hello, Alice! Your age is 30. Missing: ", result);
     }
+
+    public void testRenderSpecialCharacters() {
+        String template = "<p>${content}</p>";
+        Map<String, String> data = Map.of("content", "$1 \\ ${name} 中文");
+
+        String result = TinyTemplateEngine.renderHtml(template, data);
+        Assert.assertEquals("<p>$1 \\ ${name} 中文</p>", result);
+    }
+
+    public void testPlaceholderDoesNotSpanLines() {
+        String template = "${a\n}${b}$ {c} ${";
+        Map<String, String> data = Map.of("b", "B");
+
+        String result = TinyTemplateEngine.renderHtml(template, data);
+        Assert.assertEquals("${a\n}B$ {c} ${", result);
+    }
+
+    public void testCompiledTemplate() {
+        TinyTemplateEngine.CompiledTemplate compiled = TinyTemplateEngine.compile("${x}-${y}-${x}");
+        Assert.assertEquals(List.of("x", "y", "x"), compiled.getKeys());
+
+        byte[] bytes = compiled.render(Map.of("x", "é", "y", "2"));
+        Assert.assertArrayEquals("é-2-é".getBytes(StandardCharsets.UTF_8), bytes);
+    }
 }
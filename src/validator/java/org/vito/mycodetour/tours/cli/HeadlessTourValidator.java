@@ -0,0 +1,378 @@
+package org.vito.mycodetour.tours.cli;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 不启动 IDE 的 tour 校验，供 CI 使用，不依赖 IntelliJ 平台：
+ * 遍历一次目录，收集所有 .tour 文件并按文件名建立源码文件索引，
+ * 并行解析 tour，按索引校验 file:line 以及 Class#member 引用，结果写成 JSON 报告。
+ * 类按 包声明 + 文件名 定位，成员按声明的文本匹配，只读取被引用的文件
+ * <p>
+ * 用法：{@code HeadlessTourValidator <项目目录> [报告文件]}，有问题时退出码为 1
+ *
+ * @author vito
+ * Created on 2026/10/19
+ */
+public final class HeadlessTourValidator {
+
+    private static final Set<String> SKIPPED_DIRS = Set.of(".git", ".gradle", ".idea", "build", "out", "target",
+            "node_modules");
+    private static final List<String> SOURCE_EXTENSIONS = List.of(".java", ".kt", ".groovy", ".scala");
+    /**
+     * 可以出现在调用处前面的关键字，名称前是这些词时不是声明
+     */
+    private static final Set<String> STATEMENT_KEYWORDS = Set.of("return", "new", "throw", "else", "case", "yield",
+            "await", "assert", "in", "is", "as");
+    private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)", Pattern.MULTILINE);
+
+    private final Path root;
+    private final List<Path> tourFiles = new ArrayList<>();
+    /**
+     * 文件名 -> 同名的文件
+     */
+    private final Map<String, List<Path>> filesByName = new ConcurrentHashMap<>();
+    private final Map<Path, Integer> lineCounts = new ConcurrentHashMap<>();
+    private final Map<Path, String> contents = new ConcurrentHashMap<>();
+
+    public HeadlessTourValidator(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: HeadlessTourValidator <projectDir> [report.json]");
+            System.exit(2);
+        }
+        final long start = System.nanoTime();
+        final HeadlessTourValidator validator = new HeadlessTourValidator(Path.of(args[0]));
+        final Report report = validator.validate();
+        report.durationMs = (System.nanoTime() - start) / 1_000_000;
+
+        final String json = report.toJson();
+        if (args.length > 1) {
+            final Path output = Path.of(args[1]);
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            Files.writeString(output, json, StandardCharsets.UTF_8);
+        } else {
+            System.out.println(json);
+        }
+        System.err.printf("Validated %d steps in %d tours in %d ms, %d problems%n",
+                report.steps, report.tours, report.durationMs, report.problems.size());
+        report.problems.forEach(problem -> System.err.printf("  %s [%s] %s: %s%n",
+                problem.tourFile, problem.step, problem.reference, problem.message));
+        System.exit(report.problems.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * 扫描目录并校验所有 tour
+     *
+     * @return 校验结果
+     */
+    public Report validate() throws IOException {
+        scan();
+        final List<List<Problem>> results = new ArrayList<>(Collections.nCopies(tourFiles.size(), null));
+        final int[] stepCounts = new int[tourFiles.size()];
+        IntStream.range(0, tourFiles.size()).parallel().forEach(index -> {
+            final List<Problem> problems = new ArrayList<>();
+            stepCounts[index] = validateTour(tourFiles.get(index), problems);
+            results.set(index, problems);
+        });
+
+        final Report report = new Report(root.toString());
+        report.tours = tourFiles.size();
+        for (int i = 0; i < tourFiles.size(); i++) {
+            report.steps += stepCounts[i];
+            report.problems.addAll(results.get(i));
+        }
+        return report;
+    }
+
+    /**
+     * 遍历一次目录，收集 tour 文件并按文件名建立索引
+     */
+    private void scan() throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(root) && SKIPPED_DIRS.contains(dir.getFileName().toString())
+                        ? FileVisitResult.SKIP_SUBTREE
+                        : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                final String name = file.getFileName().toString();
+                if (name.endsWith(".tour")) {
+                    tourFiles.add(file);
+                } else {
+                    filesByName.computeIfAbsent(name, n -> new ArrayList<>()).add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        tourFiles.sort(Comparator.naturalOrder());
+    }
+
+    /**
+     * @return tour 中的步骤数
+     */
+    private int validateTour(Path tourFile, List<Problem> problems) {
+        final String tourName = root.relativize(tourFile).toString().replace('\\', '/');
+        final JsonObject tour;
+        try {
+            tour = JsonParser.parseString(Files.readString(tourFile, StandardCharsets.UTF_8)).getAsJsonObject();
+        } catch (Exception e) {
+            problems.add(new Problem(tourName, -1, null, null, "Invalid tour file: " + e.getMessage()));
+            return 0;
+        }
+        final JsonArray steps = tour.has("steps") && tour.get("steps").isJsonArray()
+                ? tour.getAsJsonArray("steps")
+                : new JsonArray();
+        for (int i = 0; i < steps.size(); i++) {
+            try {
+                validateStep(tourName, i, steps.get(i), problems);
+            } catch (RuntimeException e) {
+                // 一个步骤有问题不影响其他步骤和报告
+                problems.add(new Problem(tourName, i, null, null, "Invalid step: " + e.getMessage()));
+            }
+        }
+        return steps.size();
+    }
+
+    private void validateStep(String tourName, int index, JsonElement element, List<Problem> problems) {
+        if (!element.isJsonObject()) {
+            problems.add(new Problem(tourName, index, null, null, "Invalid step: not a JSON object"));
+            return;
+        }
+        final JsonObject step = element.getAsJsonObject();
+        final String title = string(step, "title");
+        final String file = string(step, "file");
+        if (file == null || file.isEmpty()) {
+            return;
+        }
+        final JsonElement lineElement = step.get("line");
+        Integer line = null;
+        if (lineElement != null && !lineElement.isJsonNull()) {
+            if (!lineElement.isJsonPrimitive() || !lineElement.getAsJsonPrimitive().isNumber()) {
+                problems.add(new Problem(tourName, index, title, file, "Invalid line: " + lineElement));
+                return;
+            }
+            line = lineElement.getAsInt();
+        }
+        final String problem = line != null ? checkFileLine(file, line) : checkReference(file);
+        if (problem != null) {
+            problems.add(new Problem(tourName, index, title, line != null ? file + ":" + line : file, problem));
+        }
+    }
+
+    private String checkFileLine(String file, int line) {
+        final List<Path> candidates = findFiles(file);
+        if (candidates.isEmpty()) {
+            return String.format("File '%s' not found", file);
+        }
+        // 与 IDE 一致：多个同名文件时导航会让用户选择，行号不超出其中最长的文件即可
+        int lines = 0;
+        for (Path candidate : candidates) {
+            lines = Math.max(lines, lineCount(candidate));
+        }
+        return line < 1 || line > lines
+                ? String.format("Line %d is out of range, '%s' has %d lines", line, file, lines)
+                : null;
+    }
+
+    /**
+     * 形如 com.fr.MyClass、com.fr.MyClass#myMethod 或 com.fr.MyClass#myMethod(int, String)
+     */
+    private String checkReference(String reference) {
+        final String[] parts = reference.split("#", 2);
+        final String className = parts[0];
+        final Path classFile = findClass(className);
+        if (classFile == null) {
+            return String.format("Class '%s' not found", className);
+        }
+        if (parts.length == 1) {
+            return null;
+        }
+        String member = URLDecoder.decode(parts[1], StandardCharsets.UTF_8);
+        if (member.contains("(")) {
+            member = member.substring(0, member.indexOf('('));
+        }
+        return hasDeclaration(content(classFile), member.trim())
+                ? null
+                : String.format("Member '%s' not found in '%s'", parts[1], className);
+    }
+
+    /**
+     * 按声明的文本匹配成员，调用处不算：Kotlin、Groovy、Scala 的 fun/def/val/var 声明，
+     * Java 中类型或修饰符之后的名称，以及枚举常量
+     */
+    static boolean hasDeclaration(String content, String member) {
+        final String name = Pattern.quote(member);
+        if (Pattern.compile("\\b(?:fun|def|val|var)\\s+(?:<[^>]*>\\s*)?(?:[\\w.]+\\.)?" + name + "\\b")
+                .matcher(content).find()) {
+            return true;
+        }
+        final Matcher typed = Pattern.compile("(?:\\b(\\w+)|[>\\]?])\\s+" + name + "\\s*[(=;,]").matcher(content);
+        while (typed.find()) {
+            if (typed.group(1) == null || !STATEMENT_KEYWORDS.contains(typed.group(1))) {
+                return true;
+            }
+        }
+        return content.contains("enum ")
+                && Pattern.compile("^\\s*" + name + "\\s*(?:[(,;{]|$)", Pattern.MULTILINE).matcher(content).find();
+    }
+
+    /**
+     * 只有文件名时按文件名找，带目录时只保留路径以其结尾的同名文件，与 IDE 中一样不接受路径不符的文件
+     */
+    private List<Path> findFiles(String reference) {
+        final Path relative = Path.of(reference).normalize();
+        final List<Path> named = filesByName.getOrDefault(relative.getFileName().toString(), List.of());
+        if (relative.getNameCount() == 1) {
+            return named;
+        }
+        return named.stream().filter(path -> path.endsWith(relative)).collect(Collectors.toList());
+    }
+
+    /**
+     * 按 包名 + 文件名 查找类，内部类向外查找所在的文件
+     */
+    private Path findClass(String className) {
+        String outer = className.replace('$', '.');
+        String nested = null;
+        while (true) {
+            final int dot = outer.lastIndexOf('.');
+            final String packageName = dot > 0 ? outer.substring(0, dot) : "";
+            final String simpleName = outer.substring(dot + 1);
+            for (String extension : SOURCE_EXTENSIONS) {
+                for (Path candidate : filesByName.getOrDefault(simpleName + extension, List.of())) {
+                    if (packageName.equals(packageOf(candidate))
+                            && (nested == null || content(candidate).contains(nested))) {
+                        return candidate;
+                    }
+                }
+            }
+            if (dot <= 0) {
+                return null;
+            }
+            nested = outer.substring(dot + 1);
+            outer = packageName;
+        }
+    }
+
+    private String packageOf(Path file) {
+        final var matcher = PACKAGE.matcher(content(file));
+        return matcher.find() ? matcher.group(1) : "";
+    }
+
+    private int lineCount(Path file) {
+        return lineCounts.computeIfAbsent(file, path -> {
+            final String text = content(path);
+            int lines = 1;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    lines++;
+                }
+            }
+            return lines;
+        });
+    }
+
+    private String content(Path file) {
+        return contents.computeIfAbsent(file, path -> {
+            try {
+                return Files.readString(path, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String string(JsonObject object, String name) {
+        final JsonElement element = object.get(name);
+        return element != null && !element.isJsonNull() ? element.getAsString() : null;
+    }
+
+    /**
+     * 校验报告
+     */
+    public static final class Report {
+        private final String root;
+        private int tours;
+        private int steps;
+        private long durationMs;
+        private final List<Problem> problems = new ArrayList<>();
+
+        private Report(String root) {
+            this.root = root;
+        }
+
+        public List<Problem> getProblems() {
+            return problems;
+        }
+
+        public int getSteps() {
+            return steps;
+        }
+
+        public String toJson() {
+            final Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+            return gson.toJson(this);
+        }
+    }
+
+    /**
+     * 一个有问题的步骤
+     */
+    public static final class Problem {
+        private final String tourFile;
+        private final int step;
+        private final String title;
+        private final String reference;
+        private final String message;
+
+        private Problem(String tourFile, int step, String title, String reference, String message) {
+            this.tourFile = tourFile;
+            this.step = step;
+            this.title = title;
+            this.reference = reference;
+            this.message = message;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -2,10 +2,48 @@ import 'easymde/dist/easymde.min.css';
 import './index.css';
 import EasyMDE from 'easymde';
 
+// 后端分段传入的 markdown，收齐后一次性设置到编辑器，避免内容写进页面源码
+let transfer = null;
+let pendingValue = null;
+let settingValue = false;
+
+function setEditorValue(value) {
+    if (!window.easyMDE) {
+        pendingValue = value;
+        return;
+    }
+    settingValue = true;
+    try {
+        window.easyMDE.value(value);
+        // 初始内容不进入撤销历史
+        window.easyMDE.codemirror.clearHistory();
+    } finally {
+        settingValue = false;
+    }
+}
+
+window.markdownChannel = {
+    begin(id) {
+        transfer = {id, chunks: []};
+    },
+    append(id, chunk) {
+        if (transfer && transfer.id === id) {
+            transfer.chunks.push(chunk);
+        }
+    },
+    commit(id) {
+        if (transfer && transfer.id === id) {
+            const value = transfer.chunks.join('');
+            transfer = null;
+            setEditorValue(value);
+        }
+    }
+};
+
 document.addEventListener('DOMContentLoaded', () => {
     const easyMDE = new EasyMDE({
         element: document.getElementById('editor'),
-        initialValue: window.initialMarkdown || '',
+        initialValue: '',
         autofocus: true,
         spellChecker: false,
         status: false,
@@ -18,9 +56,17 @@ document.addEventListener('DOMContentLoaded', () => {
         }
     });
     window.easyMDE = easyMDE;
+    if (pendingValue !== null) {
+        setEditorValue(pendingValue);
+        pendingValue = null;
+    }
 
     if (window.onEditorChange) {
         easyMDE.codemirror.on('change', () => {
+            // 后端设置的内容不需要再回传
+            if (settingValue) {
+                return;
+            }
             eval(window.onEditorChange);
         });
     }
@@ -16,109 +16,286 @@ hljs.registerLanguage('javascript', javascript);
 window.hljs = hljs;
 // 首屏渲染
 document.addEventListener('DOMContentLoaded', function () {
-    // 代码高亮
     hljs.configure({
         languages: ['java', 'javascript']
     });
-    document.querySelectorAll('pre code').forEach((block) => {
+    const article = document.querySelector('.markdown-body');
+    recordSources(article);
+    renderContent(article);
+}, {once: true});
+
+// 池化的浏览器不再重新加载页面，由插件直接替换内容
+window.renderMarkdown = function (html) {
+    const article = document.querySelector('.markdown-body');
+    article.innerHTML = html;
+    recordSources(article);
+    window.scrollTo(0, 0);
+    renderContent(article);
+};
+
+// 编辑预览：只替换有变化的节点，未变化的代码高亮和图表保持不动
+window.patchMarkdown = function (html) {
+    const article = document.querySelector('.markdown-body');
+    const template = document.createElement('template');
+    template.innerHTML = html;
+    patchChildren(article, template.content);
+    renderContent(article);
+};
+
+// 节点增强（高亮、图表）前的原始 html，增强后的 outerHTML 不能再用于比较
+const nodeSources = new WeakMap();
+
+function recordSources(root) {
+    root.querySelectorAll('*').forEach((element) => nodeSources.set(element, element.outerHTML));
+}
+
+function sourceOf(node) {
+    if (node.nodeType !== Node.ELEMENT_NODE) {
+        return node.nodeType + ':' + node.nodeValue;
+    }
+    return nodeSources.get(node) ?? node.outerHTML;
+}
+
+function sameShell(oldNode, newNode) {
+    return oldNode.nodeType === Node.ELEMENT_NODE && newNode.nodeType === Node.ELEMENT_NODE
+        && oldNode.cloneNode(false).outerHTML === newNode.cloneNode(false).outerHTML;
+}
+
+function patchChildren(parent, newParent) {
+    const oldNodes = Array.from(parent.childNodes);
+    const newNodes = Array.from(newParent.childNodes);
+    const newSources = newNodes.map(sourceOf);
+
+    // 跳过相同的前缀和后缀
+    let start = 0;
+    while (start < oldNodes.length && start < newNodes.length
+    && sourceOf(oldNodes[start]) === newSources[start]) {
+        start++;
+    }
+    let oldEnd = oldNodes.length;
+    let newEnd = newNodes.length;
+    while (oldEnd > start && newEnd > start
+    && sourceOf(oldNodes[oldEnd - 1]) === newSources[newEnd - 1]) {
+        oldEnd--;
+        newEnd--;
+    }
+
+    // 只有一个容器节点变化时（例如正文 div），递归进去比较
+    if (oldEnd - start === 1 && newEnd - start === 1 && sameShell(oldNodes[start], newNodes[start])) {
+        patchChildren(oldNodes[start], newNodes[start]);
+        nodeSources.set(oldNodes[start], newSources[start]);
+        return;
+    }
+
+    const anchor = oldEnd < oldNodes.length ? oldNodes[oldEnd] : null;
+    for (let i = start; i < oldEnd; i++) {
+        oldNodes[i].remove();
+    }
+    for (let i = start; i < newEnd; i++) {
+        const node = newNodes[i];
+        if (node.nodeType === Node.ELEMENT_NODE) {
+            nodeSources.set(node, newSources[i]);
+            recordSources(node);
+        }
+        parent.insertBefore(node, anchor);
+    }
+}
+
+// 代码高亮及图表渲染，已处理过的节点会被跳过，可以重复调用
+function renderContent(root) {
+    root.querySelectorAll('pre code:not(.hljs)').forEach((block) => {
         hljs.highlightElement(block);
     });
 
     // 异步加载其他功能
-    loadMermaid();
-    loadPlantUML();
-    loadExcalidraw();
-}, {once: true});
+    loadMermaid(root);
+    loadPlantUML(root);
+    loadExcalidraw(root);
+}
+
+// 异步加载 Mermaid，只初始化一次，之后按需渲染新内容中的图表；
+// 插件已内联缓存 SVG 的图表（data-cached）不再渲染，全部命中时不加载 mermaid
+let mermaidLoader = null;
 
-// 异步加载 Mermaid
-async function loadMermaid() {
-    const mermaidElements = document.querySelectorAll('.mermaid');
+async function loadMermaid(root) {
+    const mermaidElements = root.querySelectorAll('.mermaid:not([data-cached]):not([data-processed])');
     if (mermaidElements.length > 0) {
-        const mermaid = await import('mermaid');
-        mermaid.default.initialize({
-            startOnLoad: true,
-            theme: 'dark',
-            securityLevel: 'loose',
-            flowchart: {useMaxWidth: true},
-            sequence: {useMaxWidth: true},
-            gantt: {useMaxWidth: true}
+        if (mermaidLoader === null) {
+            mermaidLoader = import('mermaid').then((module) => {
+                module.default.initialize({
+                    startOnLoad: false,
+                    // 主题参与插件侧缓存 key 的计算，修改时需同步 TourFlavourDescriptor
+                    theme: 'dark',
+                    securityLevel: 'loose',
+                    flowchart: {useMaxWidth: true},
+                    sequence: {useMaxWidth: true},
+                    gantt: {useMaxWidth: true}
+                });
+                return module.default;
+            });
+        }
+        const mermaid = await mermaidLoader;
+        await mermaid.run({nodes: mermaidElements, suppressErrors: true});
+        mermaidElements.forEach((element) => {
+            const svg = element.querySelector('svg');
+            // 渲染失败时 mermaid 输出的是错误图，不回写
+            if (svg && !element.querySelector('.error-icon')) {
+                reportDiagram(element.getAttribute('data-key'), svg.outerHTML);
+            }
         });
     }
 }
 
-// 异步加载 PlantUML
-async function loadPlantUML() {
-    const plantumlElements = document.querySelectorAll('.plantuml');
-    if (plantumlElements.length > 0) {
-        const plantumlEncoder = await import('plantuml-encoder');
-        plantumlElements.forEach(function (element) {
-            const encoded = plantumlEncoder.default.encode(element.textContent);
-            const img = document.createElement('img');
-            img.src = 'https://www.plantuml.com/plantuml/dsvg/' + encoded;
-            img.style.maxWidth = '100%';
-            element.innerHTML = '';
-            element.appendChild(img);
-        });
+// 异步加载 PlantUML，优先使用插件本地渲染，失败时回退到远程服务
+let plantumlEncoder = null;
+
+async function loadRemotePlantUML(img, source) {
+    if (plantumlEncoder === null) {
+        plantumlEncoder = (await import('plantuml-encoder')).default;
+    }
+    img.src = 'https://www.plantuml.com/plantuml/dsvg/' + plantumlEncoder.encode(source);
+}
+
+function loadPlantUML(root) {
+    root.querySelectorAll('.plantuml:not([data-rendered])').forEach(function (element) {
+        element.setAttribute('data-rendered', 'true');
+        const source = element.textContent;
+        const localSrc = element.getAttribute('data-src');
+        const img = document.createElement('img');
+        img.style.maxWidth = '100%';
+        element.innerHTML = '';
+        element.appendChild(img);
+        if (localSrc) {
+            img.onerror = () => {
+                img.onerror = null;
+                loadRemotePlantUML(img, source);
+            };
+            img.src = localSrc;
+        } else {
+            loadRemotePlantUML(img, source);
+        }
+    });
+}
+
+// 图表渲染结果回写到插件的磁盘缓存，下次直接展示 SVG
+function reportDiagram(key, svg) {
+    if (!key || !window.onDiagramRendered) {
+        return;
     }
+    const payload = key + '\n' + svg;
+    eval(window.onDiagramRendered);
 }
 
-// 异步加载 Excalidraw
-async function loadExcalidraw() {
-    const excalidrawElements = document.querySelectorAll('.excalidraw');
-    if (excalidrawElements.length > 0) {
-        const {exportToSvg} = await import('@excalidraw/excalidraw');
+// 图表源内容以脚本形式加载（file 协议下无法 fetch），脚本加载后回调 onDiagramSource
+const diagramSources = new Map();
+
+window.onDiagramSource = function (key, text, cacheable) {
+    const pending = diagramSources.get(key);
+    if (pending) {
+        diagramSources.delete(key);
+        pending.resolve({text, cacheable});
+    }
+};
+
+function loadDiagramSource(key, src) {
+    return new Promise((resolve, reject) => {
+        diagramSources.set(key, {resolve, reject});
+        const script = document.createElement('script');
+        script.src = src;
+        script.onload = () => script.remove();
+        script.onerror = () => {
+            script.remove();
+            diagramSources.delete(key);
+            reject(new Error('Failed to load ' + src));
+        };
+        document.head.appendChild(script);
+    });
+}
+
+function createExcalidrawContainer(element) {
+    const container = document.createElement('div');
+    container.style.width = '100%';
+    container.style.height = '100%';
+    container.style.background = 'transparent';
+    container.style.display = 'flex';
+    container.style.alignItems = 'center';
+    container.style.justifyContent = 'center';
+
+    // 获取源文件路径
+    const sourceFile = element.getAttribute('data-source-file');
+    if (sourceFile) {
+        container.style.cursor = 'pointer';
+        container.onclick = () => {
+            window.location.href = `navigate://${sourceFile}`;
+        };
+    }
+    return container;
+}
+
+// 异步加载 Excalidraw，已有缓存的直接展示 SVG，只有未缓存的才加载 Excalidraw
+async function loadExcalidraw(root) {
+    const pending = [];
+    for (const element of root.querySelectorAll('.excalidraw:not([data-rendered])')) {
+        element.setAttribute('data-rendered', 'true');
+        const missing = element.getAttribute('data-missing');
+        if (missing !== null) {
+            element.innerHTML = `<div style="color: red; padding: 20px; text-align: center;">Excalidraw file not found: ${missing}</div>`;
+            continue;
+        }
+        const cached = element.querySelector('img');
+        if (cached) {
+            const container = createExcalidrawContainer(element);
+            cached.style.maxWidth = '100%';
+            element.replaceChild(container, cached);
+            container.appendChild(cached);
+            continue;
+        }
+        if (element.getAttribute('data-src') !== null) {
+            pending.push(element);
+        }
+    }
+    if (pending.length === 0) {
+        return;
+    }
+
+    const {exportToSvg} = await import('@excalidraw/excalidraw');
+    for (const element of pending) {
+        const key = element.getAttribute('data-key');
+        const src = element.getAttribute('data-src');
+        element.removeAttribute('data-src');
+        try {
+            const {text, cacheable} = await loadDiagramSource(key, src);
+            const excalidrawData = JSON.parse(text);
+
+            // 创建容器
+            const container = createExcalidrawContainer(element);
+            element.appendChild(container);
 
-        for (const element of excalidrawElements) {
-            const excalidrawString = element.getAttribute('data-src');
-            if (excalidrawString === null || excalidrawString === undefined) {
+            // 直接显示SVG内容
+            if (excalidrawData.svg) {
+                container.innerHTML = excalidrawData.svg;
                 continue;
             }
-            try {
-                const excalidrawData = JSON.parse(excalidrawString);
-                element.removeAttribute('data-src')
-
-                // 创建容器
-                const container = document.createElement('div');
-                container.style.width = '100%';
-                container.style.height = '100%';
-                container.style.background = 'transparent';
-                container.style.display = 'flex';
-                container.style.alignItems = 'center';
-                container.style.justifyContent = 'center';
-                element.appendChild(container);
-
-                // 获取源文件路径
-                const sourceFile = element.getAttribute('data-source-file');
-                if (sourceFile) {
-                    container.style.cursor = 'pointer';
-                    container.onclick = () => {
-                        window.location.href = `navigate://${sourceFile}`;
-                    };
-                }
-
-                // 直接显示SVG内容
-                if (excalidrawData.svg) {
-                    container.innerHTML = excalidrawData.svg;
-                } else {
-                    // 渲染Excalidraw
-                    const svg = await exportToSvg({
-                        elements: excalidrawData.elements || [],
-                        appState: {
-                            ...excalidrawData.appState,
-                            exportWithDarkMode: true,
-                        },
-                        files: excalidrawData.files || {},
-                        exportPadding: 10
-                    });
-                    // 设置SVG样式
-                    svg.style.width = '100%';
-                    svg.style.height = '100%';
-                    container.appendChild(svg);
-                }
-            } catch (error) {
-                console.error('Error loading Excalidraw:', error);
-                element.innerHTML = `<div style="color: red; padding: 20px; text-align: center;">Error loading Excalidraw: ${error.message}</div>`;
+            // 渲染Excalidraw
+            const svg = await exportToSvg({
+                elements: excalidrawData.elements || [],
+                appState: {
+                    ...excalidrawData.appState,
+                    exportWithDarkMode: true,
+                },
+                files: excalidrawData.files || {},
+                exportPadding: 10
+            });
+            if (cacheable) {
+                reportDiagram(key, new XMLSerializer().serializeToString(svg));
             }
+            // 设置SVG样式
+            svg.style.width = '100%';
+            svg.style.height = '100%';
+            container.appendChild(svg);
+        } catch (error) {
+            console.error('Error loading Excalidraw:', error);
+            element.innerHTML = `<div style="color: red; padding: 20px; text-align: center;">Error loading Excalidraw: ${error.message}</div>`;
         }
     }
 }